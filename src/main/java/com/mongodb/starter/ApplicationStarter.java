@@ -7,6 +7,7 @@ import java.util.Random;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import com.mongodb.starter.rating.Rating;
 import com.mongodb.starter.rating.RatingRepository;
@@ -15,6 +16,7 @@ import jakarta.annotation.PostConstruct;
 
 @SpringBootApplication
 @EnableMongoRepositories
+@EnableScheduling
 public class ApplicationStarter {
 
     private final RatingRepository ratingRepository;
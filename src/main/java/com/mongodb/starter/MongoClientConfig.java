@@ -2,8 +2,11 @@ package com.mongodb.starter;
 
 import com.mongodb.ConnectionString;
 import com.mongodb.MongoClientSettings;
+import com.mongodb.event.CommandListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -17,6 +20,9 @@ public class MongoClientConfig extends AbstractMongoClientConfiguration {
     private String database;
     @Value("${spring.data.mongodb.uri}")
     private String connectionString;
+    // Listeners de comandos, como la latencia de Mongo que usa el limitador de concurrencia
+    @Autowired
+    private ObjectProvider<CommandListener> commandListeners;
 
     @Override
     protected String getDatabaseName() {
@@ -26,6 +32,8 @@ public class MongoClientConfig extends AbstractMongoClientConfiguration {
     @Bean
     public MongoClientSettings mongoClientSettings() {
         LOGGER.info("=> Creating the MongoClientSettings for MongoClient & MongoTemplate.");
-        return MongoClientSettings.builder().applyConnectionString(new ConnectionString(connectionString)).build();
+        MongoClientSettings.Builder builder = MongoClientSettings.builder().applyConnectionString(new ConnectionString(connectionString));
+        commandListeners.orderedStream().forEach(builder::addCommandListener);
+        return builder.build();
     }
 }
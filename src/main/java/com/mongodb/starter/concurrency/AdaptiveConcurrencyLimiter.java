@@ -0,0 +1,168 @@
+package com.mongodb.starter.concurrency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Límite de peticiones concurrentes que se ajusta solo, al estilo gradient de Netflix concurrency-limits.
+ * Se comparan dos medias móviles de latencia, una corta (lo que pasa ahora) y una larga (referencia sin carga),
+ * tanto de las peticiones como de los comandos de Mongo:
+ *   gradiente = clamp(tolerance * larga / corta, 0.5, 1)
+ *   nuevo = límite * gradiente + sqrt(límite)
+ * Mientras la latencia se mantiene el límite crece despacio; si Mongo o las peticiones se ralentizan, baja.
+ * Los timeouts propios (Mongo) reducen el límite de forma multiplicativa.
+ * Las escrituras solo pueden ocupar writeShare del límite, así que con carga se rechazan antes que las lecturas.
+ */
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    private final ConcurrencyLimitProperties properties;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter rejectedReads;
+    private final Counter rejectedWrites;
+    private final Ewma handlerShort;
+    private final Ewma handlerLong;
+    private final Ewma mongoShort;
+    private final Ewma mongoLong;
+    private volatile double limit;
+
+    public AdaptiveConcurrencyLimiter(ConcurrencyLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.limit = properties.getInitialLimit();
+        this.handlerShort = new Ewma(properties.getShortWindow());
+        this.handlerLong = new Ewma(properties.getLongWindow());
+        this.mongoShort = new Ewma(properties.getShortWindow());
+        this.mongoLong = new Ewma(properties.getLongWindow());
+        this.rejectedReads = Counter.builder("rating.concurrency.rejected").tag("operation", "read")
+                .description("Requests shed by the adaptive concurrency limiter").register(meterRegistry);
+        this.rejectedWrites = Counter.builder("rating.concurrency.rejected").tag("operation", "write")
+                .description("Requests shed by the adaptive concurrency limiter").register(meterRegistry);
+        Gauge.builder("rating.concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit).register(meterRegistry);
+        Gauge.builder("rating.concurrency.inflight", inFlight, AtomicInteger::get).register(meterRegistry);
+    }
+
+    // false si la petición debe rechazarse; si devuelve true hay que llamar a release
+    public boolean tryAcquire(boolean write) {
+        int allowed = write ? Math.max(1, (int) (limit * properties.getWriteShare())) : Math.max(1, (int) limit);
+        if (inFlight.incrementAndGet() > allowed) {
+            inFlight.decrementAndGet();
+            (write ? rejectedWrites : rejectedReads).increment();
+            return false;
+        }
+        return true;
+    }
+
+    public void release(long latencyNanos, boolean overloaded) {
+        int current = inFlight.getAndDecrement();
+        if (overloaded) {
+            backoff();
+        } else {
+            onHandlerSample(latencyNanos, current);
+        }
+    }
+
+    // Para peticiones cuya duración no refleja la carga (streaming): solo libera el hueco
+    public void releaseWithoutSample() {
+        inFlight.decrementAndGet();
+    }
+
+    public synchronized void onMongoSample(long latencyNanos) {
+        mongoShort.add(latencyNanos);
+        mongoLong.add(latencyNanos);
+        decayBaseline(mongoShort, mongoLong);
+    }
+
+    public synchronized void backoff() {
+        limit = Math.max(properties.getMinLimit(), limit * properties.getBackoffRatio());
+    }
+
+    private synchronized void onHandlerSample(long latencyNanos, int inFlightAtRelease) {
+        handlerShort.add(latencyNanos);
+        handlerLong.add(latencyNanos);
+        decayBaseline(handlerShort, handlerLong);
+
+        double gradient = Math.min(gradient(handlerShort, handlerLong), gradient(mongoShort, mongoLong));
+        // Con menos de la mitad del límite en uso la latencia no dice nada de si cabe más carga
+        if (gradient >= 1.0 && inFlightAtRelease < limit / 2) {
+            return;
+        }
+        double target = limit * gradient + Math.sqrt(limit);
+        double next = limit * (1 - properties.getSmoothing()) + target * properties.getSmoothing();
+        limit = Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), next));
+    }
+
+    private double gradient(Ewma recent, Ewma baseline) {
+        if (recent.isEmpty() || recent.value() <= 0) {
+            return 1.0;
+        }
+        return Math.max(0.5, Math.min(1.0, properties.getTolerance() * baseline.value() / recent.value()));
+    }
+
+    // Si la referencia queda muy por encima de la latencia actual (tras una degradación), se acerca más rápido
+    private static void decayBaseline(Ewma recent, Ewma baseline) {
+        if (baseline.value() > 2 * recent.value()) {
+            baseline.scale(0.95);
+        }
+    }
+
+    public double getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public double getRejectedReads() {
+        return rejectedReads.count();
+    }
+
+    public double getRejectedWrites() {
+        return rejectedWrites.count();
+    }
+
+    public synchronized double handlerLatencyMillis() {
+        return handlerShort.value() / 1_000_000.0;
+    }
+
+    public synchronized double mongoLatencyMillis() {
+        return mongoShort.value() / 1_000_000.0;
+    }
+
+    // Media móvil exponencial; la primera muestra la inicializa
+    private static final class Ewma {
+        private final double alpha;
+        private double value;
+        private boolean empty = true;
+
+        Ewma(int window) {
+            this.alpha = 2.0 / (window + 1);
+        }
+
+        void add(double sample) {
+            if (empty) {
+                value = sample;
+                empty = false;
+            } else {
+                value += alpha * (sample - value);
+            }
+        }
+
+        void scale(double factor) {
+            value *= factor;
+        }
+
+        double value() {
+            return value;
+        }
+
+        boolean isEmpty() {
+            return empty;
+        }
+    }
+}
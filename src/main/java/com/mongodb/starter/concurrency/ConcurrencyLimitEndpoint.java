@@ -0,0 +1,33 @@
+package com.mongodb.starter.concurrency;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+// GET /actuator/concurrencylimit; las mismas cifras están en rating.concurrency.* de /actuator/metrics
+@Component
+@Endpoint(id = "concurrencylimit")
+public class ConcurrencyLimitEndpoint {
+
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public ConcurrencyLimitEndpoint(AdaptiveConcurrencyLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    @ReadOperation
+    public Map<String, Object> limit() {
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("limit", (int) limiter.getLimit());
+        state.put("inFlight", limiter.getInFlight());
+        state.put("rejectedReads", (long) limiter.getRejectedReads());
+        state.put("rejectedWrites", (long) limiter.getRejectedWrites());
+        state.put("handlerLatencyMs", limiter.handlerLatencyMillis());
+        state.put("mongoLatencyMs", limiter.mongoLatencyMillis());
+        return state;
+    }
+
+}
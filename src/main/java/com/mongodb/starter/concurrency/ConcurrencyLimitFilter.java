@@ -0,0 +1,102 @@
+package com.mongodb.starter.concurrency;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.mongodb.MongoTimeoutException;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/*
+ * Rechaza con 503 antes de ocupar más hilos de Tomcat cuando se supera el límite del limitador.
+ * La latencia de cada petición admitida alimenta el límite; un timeout propio lo reduce.
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public ConcurrencyLimitFilter(AdaptiveConcurrencyLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!limiter.tryAcquire(isWrite(request))) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Server busy");
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean overloaded = false;
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            async = request.isAsyncStarted();
+        } catch (IOException | ServletException | RuntimeException e) {
+            overloaded = isOwnTimeout(e);
+            throw e;
+        } finally {
+            if (async) {
+                releaseOnCompletion(request);
+            } else {
+                limiter.release(System.nanoTime() - start, overloaded);
+            }
+        }
+    }
+
+    /*
+     * El export NDJSON sigue ocupando un hueco mientras escribe, pero su duración depende del tamaño del curso
+     * y no de la carga: se libera al terminar sin aportar muestra de latencia.
+     */
+    private void releaseOnCompletion(HttpServletRequest request) {
+        request.getAsyncContext().addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                limiter.releaseWithoutSample();
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+    }
+
+    /*
+     * Solo cuenta como sobrecarga el agotamiento propio: esperar más de lo permitido por una conexión de Mongo.
+     * Los timeouts de comandos ya los cuenta MongoLatencyListener; los 503 de feature desactivada, circuit breaker
+     * o conflictos de escritura y los errores 4xx no dicen nada de la capacidad de este servicio.
+     */
+    static boolean isOwnTimeout(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isWrite(HttpServletRequest request) {
+        String method = request.getMethod();
+        return !(HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method) || HttpMethod.OPTIONS.matches(method));
+    }
+
+}
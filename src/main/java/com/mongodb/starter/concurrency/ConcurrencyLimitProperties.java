@@ -0,0 +1,29 @@
+package com.mongodb.starter.concurrency;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Configuration
+@ConfigurationProperties(prefix = "concurrency-limit")
+@Getter
+@Setter
+public class ConcurrencyLimitProperties {
+    private boolean enabled = true;
+    private int initialLimit = 64;
+    private int minLimit = 8;
+    private int maxLimit = 200;
+    // Parte del límite que pueden ocupar las escrituras: por encima solo entran lecturas
+    private double writeShare = 0.75;
+    // Latencia reciente admitida respecto a la de referencia antes de reducir el límite
+    private double tolerance = 2.0;
+    // Peso de cada nuevo cálculo sobre el límite actual
+    private double smoothing = 0.2;
+    // Reducción multiplicativa ante timeouts de Mongo o respuestas 503/504
+    private double backoffRatio = 0.9;
+    // Muestras de las medias móviles corta (latencia actual) y larga (latencia de referencia)
+    private int shortWindow = 10;
+    private int longWindow = 600;
+}
@@ -0,0 +1,38 @@
+package com.mongodb.starter.concurrency;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import com.mongodb.MongoExecutionTimeoutException;
+import com.mongodb.MongoSocketReadTimeoutException;
+import com.mongodb.MongoTimeoutException;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandSucceededEvent;
+
+// Latencia de cada comando de Mongo como señal del limitador; MongoClientConfig lo registra en el cliente
+@Component
+public class MongoLatencyListener implements CommandListener {
+
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public MongoLatencyListener(AdaptiveConcurrencyLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        limiter.onMongoSample(event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        Throwable failure = event.getThrowable();
+        if (failure instanceof MongoTimeoutException || failure instanceof MongoSocketReadTimeoutException
+                || failure instanceof MongoExecutionTimeoutException) {
+            limiter.backoff();
+        }
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.mongodb.starter.configuration;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mongodb.starter.rating.RatingCache;
+import com.mongodb.starter.rating.SerializedRatingPage;
+
+/*
+ * Cachés en memoria de lectura: las valoraciones sueltas se limitan por número de entradas y las páginas serializadas
+ * por bytes, porque su tamaño varía mucho de un curso a otro. recordStats() publica aciertos/fallos en /actuator/metrics (cache.gets).
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    @Value("${rating.cache.ttl:60s}")
+    private Duration ttl;
+
+    @Value("${rating.cache.ratings.max-size:10000}")
+    private long ratingsMaxSize;
+
+    // Las páginas serializadas se limitan por bytes (JSON + gzip), no por número de entradas
+    @Value("${rating.cache.serialized-pages.max-size:64MB}")
+    private DataSize serializedPagesMaxSize;
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.registerCustomCache(RatingCache.RATINGS, caffeine(ratingsMaxSize).build());
+        cacheManager.registerCustomCache(RatingCache.SERIALIZED_HEAD_PAGES, Caffeine.newBuilder()
+                .maximumWeight(serializedPagesMaxSize.toBytes())
+                .weigher((Object key, Object value) -> ((SerializedRatingPage) value).weight())
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build());
+        return cacheManager;
+    }
+
+    private Caffeine<Object, Object> caffeine(long maximumSize) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats();
+    }
+
+}
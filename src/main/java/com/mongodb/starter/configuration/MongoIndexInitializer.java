@@ -0,0 +1,143 @@
+package com.mongodb.starter.configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.stereotype.Component;
+
+/*
+ * Crea los índices declarados con @Indexed/@CompoundIndex en los @Document y comprueba que existen.
+ * Por defecto se ejecuta en segundo plano tras el arranque para no retrasar la disponibilidad;
+ * con mongo.indexes.strict=true se ejecuta de forma síncrona al crear los singletons, antes de que arranque
+ * el servidor web, y el arranque falla si falta alguno sin haber servido ninguna petición.
+ */
+@Component
+public class MongoIndexInitializer implements SmartInitializingSingleton {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MongoIndexInitializer.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${mongo.indexes.strict:false}")
+    private boolean strict;
+
+    public MongoIndexInitializer(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (strict) {
+            ensureIndexes();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (strict) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                ensureIndexes();
+            } catch (RuntimeException e) {
+                LOGGER.warn("Mongo index initialization failed: {}", e.getMessage());
+            }
+        }, "mongo-index-init");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void ensureIndexes() {
+        MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext =
+                mongoTemplate.getConverter().getMappingContext();
+        IndexResolver resolver = IndexResolver.create(mappingContext);
+
+        List<String> missing = new ArrayList<>();
+        for (MongoPersistentEntity<?> entity : mappingContext.getPersistentEntities()) {
+            if (!entity.isAnnotationPresent(org.springframework.data.mongodb.core.mapping.Document.class)) {
+                continue;
+            }
+            List<IndexDefinition> expected = new ArrayList<>();
+            resolver.resolveIndexFor(entity.getTypeInformation()).forEach(expected::add);
+            if (expected.isEmpty()) {
+                continue;
+            }
+
+            IndexOperations indexOperations = mongoTemplate.indexOps(entity.getType());
+            for (IndexDefinition index : expected) {
+                try {
+                    indexOperations.ensureIndex(index);
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Could not create index {} on {}: {}", index.getIndexKeys().toJson(),
+                            entity.getCollection(), e.getMessage());
+                }
+            }
+
+            for (IndexDefinition index : missingIndexes(expected, indexOperations.getIndexInfo())) {
+                missing.add(entity.getCollection() + " " + index.getIndexKeys().toJson());
+            }
+        }
+
+        if (missing.isEmpty()) {
+            LOGGER.info("=> Mongo indexes verified.");
+            return;
+        }
+        String message = "Missing Mongo indexes: " + missing;
+        if (strict) {
+            throw new IllegalStateException(message);
+        }
+        LOGGER.warn("{}. Queries on these fields will fall back to collection scans.", message);
+    }
+
+    // Compara por claves y sentido, no por nombre, para aceptar índices creados manualmente
+    static List<IndexDefinition> missingIndexes(List<IndexDefinition> expected, List<IndexInfo> existing) {
+        Set<String> existingKeys = existing.stream()
+                .map(info -> info.getIndexFields().stream()
+                        .map(MongoIndexInitializer::signature)
+                        .collect(Collectors.joining(",")))
+                .collect(Collectors.toSet());
+
+        return expected.stream()
+                .filter(index -> !existingKeys.contains(signature(index.getIndexKeys())))
+                .toList();
+    }
+
+    private static String signature(IndexField field) {
+        return field.getKey() + ":" + (field.getDirection() == null ? "?" : field.getDirection().isAscending() ? "1" : "-1");
+    }
+
+    private static String signature(Document keys) {
+        return keys.entrySet().stream()
+                .map(MongoIndexInitializer::signature)
+                .collect(Collectors.joining(","));
+    }
+
+    private static String signature(Map.Entry<String, Object> key) {
+        Object direction = key.getValue();
+        if (direction instanceof Number number) {
+            return key.getKey() + ":" + (number.intValue() >= 0 ? "1" : "-1");
+        }
+        return key.getKey() + ":?";
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.mongodb.starter.configuration;
+
+import org.bson.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.ReactiveMongoTransactionManager;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+
+import com.mongodb.MongoException;
+
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/*
+ * Transacciones multi-documento (el clúster de Atlas es un replica set). Con resultado de commit desconocido
+ * se repite solo el commit, que es idempotente: repetir la transacción entera aplicaría dos veces los $inc.
+ * Contra un Mongo standalone los servicios de valoraciones escriben sin transacción (supportsTransactions).
+ */
+@Configuration
+public class MongoTransactionConfig {
+
+    private static final int COMMIT_ATTEMPTS = 3;
+
+    // Respuesta de hello: las transacciones necesitan un replica set (setName) o un mongos (msg = isdbgrid)
+    public static boolean supportsTransactions(Document hello) {
+        return hello != null && (hello.get("setName") != null || "isdbgrid".equals(hello.get("msg")));
+    }
+
+    @Bean
+    public MongoTransactionManager transactionManager(MongoDatabaseFactory databaseFactory) {
+        return new MongoTransactionManager(databaseFactory) {
+            @Override
+            protected void doCommit(MongoTransactionObject transactionObject) throws Exception {
+                for (int attempt = 1; ; attempt++) {
+                    try {
+                        transactionObject.commitTransaction();
+                        return;
+                    } catch (MongoException e) {
+                        if (attempt >= COMMIT_ATTEMPTS || !e.hasErrorLabel(MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL)) {
+                            throw e;
+                        }
+                    }
+                }
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    public ReactiveMongoTransactionManager reactiveTransactionManager(ReactiveMongoDatabaseFactory databaseFactory) {
+        return new ReactiveMongoTransactionManager(databaseFactory) {
+            @Override
+            protected Mono<Void> doCommit(TransactionSynchronizationManager synchronizationManager,
+                                          ReactiveMongoTransactionObject transactionObject) {
+                return Mono.defer(transactionObject::commitTransaction)
+                        .retryWhen(Retry.max(COMMIT_ATTEMPTS - 1).filter(e -> e instanceof MongoException mongo
+                                && mongo.hasErrorLabel(MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL)));
+            }
+        };
+    }
+
+}
@@ -0,0 +1,184 @@
+package com.mongodb.starter.configuration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.ReactorNettyClientRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import io.netty.channel.ChannelOption;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.transport.AddressUtils;
+
+/*
+ * Capa HTTP saliente: un único pool de conexiones (Reactor Netty) compartido por RestTemplate y WebClient,
+ * con límites por host para los servicios de estudiantes, cursos y autenticación.
+ * Las métricas del pool se publican como reactor.netty.connection.provider.*.
+ */
+@Configuration
+public class OutboundHttpConfig {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutboundHttpConfig.class);
+
+    private final OutboundHttpProperties properties;
+
+    @Value("${student.url}")
+    private String studentServiceUrl;
+
+    @Value("${courses.url}")
+    private String coursesURL;
+
+    @Value("${auth.url}")
+    private String authUrl;
+
+    public OutboundHttpConfig(OutboundHttpProperties properties) {
+        this.properties = properties;
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider outboundConnectionProvider() {
+        ConnectionProvider.Builder builder = ConnectionProvider.builder("outbound")
+                .maxConnections(properties.getMaxConnections())
+                .pendingAcquireTimeout(properties.getPendingAcquireTimeout())
+                .maxIdleTime(properties.getMaxIdleTime())
+                .maxLifeTime(properties.getMaxLifeTime())
+                .evictInBackground(properties.getEvictInBackground())
+                .metrics(true);
+        forDestination(builder, studentServiceUrl, properties.getStudent());
+        forDestination(builder, coursesURL, properties.getCourses());
+        forDestination(builder, authUrl, properties.getAuth());
+        return builder.build();
+    }
+
+    @Bean
+    public RestTemplate restTemplate(ConnectionProvider outboundConnectionProvider) {
+        OutboundHttpProperties.Destination student = properties.getStudent();
+        ReactorNettyClientRequestFactory requestFactory =
+                new ReactorNettyClientRequestFactory(httpClient(outboundConnectionProvider, student));
+        requestFactory.setExchangeTimeout(student.getResponseTimeout());
+        requestFactory.setReadTimeout(student.getResponseTimeout());
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        restTemplate.getInterceptors().add((request, body, execution) -> new PooledResponse(execution.execute(request, body)));
+        return restTemplate;
+    }
+
+    @Bean
+    public WebClient studentWebClient(WebClient.Builder webClientBuilder, ConnectionProvider outboundConnectionProvider) {
+        return webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient(outboundConnectionProvider, properties.getStudent())))
+                .build();
+    }
+
+    @Bean
+    public WebClient coursesWebClient(WebClient.Builder webClientBuilder, ConnectionProvider outboundConnectionProvider) {
+        return webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient(outboundConnectionProvider, properties.getCourses())))
+                .build();
+    }
+
+    @Bean
+    public WebClient authWebClient(WebClient.Builder webClientBuilder, ConnectionProvider outboundConnectionProvider) {
+        return webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient(outboundConnectionProvider, properties.getAuth())))
+                .build();
+    }
+
+    private HttpClient httpClient(ConnectionProvider connectionProvider, OutboundHttpProperties.Destination destination) {
+        return HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) destination.getConnectTimeout().toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(destination.getResponseTimeout());
+    }
+
+    private void forDestination(ConnectionProvider.Builder builder, String url, OutboundHttpProperties.Destination destination) {
+        InetSocketAddress address = remoteAddress(url);
+        if (address == null) {
+            LOGGER.warn("Outbound URL '{}' has no host, using the default pool limits", url);
+            return;
+        }
+        builder.forRemoteHost(address, spec -> spec
+                .maxConnections(destination.getMaxConnections())
+                .pendingAcquireMaxCount(destination.getPendingAcquireMaxCount()));
+    }
+
+    static InetSocketAddress remoteAddress(String url) {
+        try {
+            URI uri = URI.create(url);
+            if (uri.getHost() == null) {
+                return null;
+            }
+            int port = uri.getPort() != -1 ? uri.getPort() : "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+            // Misma clave que usa Reactor Netty al conectar: resuelta para IPs literales, sin resolver para nombres
+            return AddressUtils.createUnresolved(uri.getHost(), port);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /*
+     * La respuesta de ReactorNettyClientRequestFactory (Spring 6.1.1) hace dispose de la conexión al cerrarse, pero
+     * Reactor Netty ya la ha devuelto al pool al leer el cuerpo entero: con concurrencia cierra la conexión que otra
+     * petición acaba de tomar (PrematureCloseException). Con el cuerpo leído basta con cerrar el stream.
+     */
+    private static final class PooledResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse delegate;
+        private InputStream body;
+
+        PooledResponse(ClientHttpResponse delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                body = delegate.getBody();
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            if (body == null) {
+                // Cuerpo sin leer: la conexión sigue siendo de esta petición y no puede volver al pool
+                delegate.close();
+                return;
+            }
+            try {
+                body.close();
+            } catch (IOException e) {
+                LOGGER.debug("Could not close outbound response body", e);
+            }
+        }
+    }
+
+}
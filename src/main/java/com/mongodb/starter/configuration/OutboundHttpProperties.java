@@ -0,0 +1,37 @@
+package com.mongodb.starter.configuration;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// Pool de conexiones salientes compartido y límites por servicio de destino
+@Configuration
+@ConfigurationProperties(prefix = "outbound.http")
+@Getter
+@Setter
+public class OutboundHttpProperties {
+    // Conexiones por host para destinos sin configuración propia
+    private int maxConnections = 50;
+    private Duration pendingAcquireTimeout = Duration.ofSeconds(2);
+    private Duration maxIdleTime = Duration.ofSeconds(30);
+    private Duration maxLifeTime = Duration.ofMinutes(5);
+    private Duration evictInBackground = Duration.ofSeconds(30);
+    private Destination student = new Destination();
+    private Destination courses = new Destination();
+    private Destination auth = new Destination();
+
+    @Getter
+    @Setter
+    public static class Destination {
+        private int maxConnections = 50;
+        // Peticiones que pueden esperar una conexión libre antes de fallar
+        private int pendingAcquireMaxCount = 500;
+        private Duration connectTimeout = Duration.ofSeconds(1);
+        private Duration responseTimeout = Duration.ofSeconds(3);
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.mongodb.starter.configuration;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.AuthenticationWebFilter;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
+import org.springframework.security.web.server.authentication.ServerAuthenticationEntryPointFailureHandler;
+import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
+
+import com.mongodb.starter.security.JwtProperties;
+import com.mongodb.starter.security.JwtVerifier;
+
+import io.jsonwebtoken.JwtException;
+import reactor.core.publisher.Mono;
+
+/*
+ * Modo reactivo (spring.main.web-application-type=reactive): servidor Netty y la misma política
+ * de seguridad y CORS que SecurityConfig aplica en modo servlet.
+ */
+@Configuration
+@EnableWebFluxSecurity
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveWebConfig {
+
+    // Tomcat también está en el classpath y Spring Boot lo elegiría antes que Netty
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http, JwtProperties jwtProperties) {
+        UrlBasedCorsConfigurationSource cors = new UrlBasedCorsConfigurationSource();
+        cors.registerCorsConfiguration("/**", SecurityConfig.corsConfiguration());
+
+        if (jwtProperties.isEnabled()) {
+            http.addFilterAt(jwtAuthenticationWebFilter(new JwtVerifier(jwtProperties)), SecurityWebFiltersOrder.AUTHENTICATION);
+        }
+        return http
+            .cors(spec -> spec.configurationSource(cors))
+            .csrf(ServerHttpSecurity.CsrfSpec::disable)
+            .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
+            .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+            .authorizeExchange(exchanges -> exchanges.anyExchange().permitAll())
+            .headers(headers -> headers.frameOptions(ServerHttpSecurity.HeaderSpec.FrameOptionsSpec::disable))
+            .build();
+    }
+
+    // Equivalente reactivo de JwtAuthenticationFilter: sin header sigue anónima, token no válido -> 401
+    private AuthenticationWebFilter jwtAuthenticationWebFilter(JwtVerifier jwtVerifier) {
+        AuthenticationWebFilter filter = new AuthenticationWebFilter((ReactiveAuthenticationManager) Mono::just);
+        filter.setServerAuthenticationConverter(exchange -> {
+            String authorization = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+            if (authorization == null || authorization.isBlank()) {
+                return Mono.empty();
+            }
+            return Mono.fromCallable(() -> (Authentication) jwtVerifier.verify(authorization))
+                    .onErrorMap(e -> e instanceof JwtException || e instanceof IllegalArgumentException,
+                            e -> new BadCredentialsException("Invalid token", e));
+        });
+        filter.setAuthenticationFailureHandler(new ServerAuthenticationEntryPointFailureHandler(
+                new HttpStatusServerEntryPoint(HttpStatus.UNAUTHORIZED)));
+        return filter;
+    }
+
+}
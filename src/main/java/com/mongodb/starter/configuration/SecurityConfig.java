@@ -1,28 +1,41 @@
 package com.mongodb.starter.configuration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import com.mongodb.starter.rating.RatingController;
+import com.mongodb.starter.security.JwtAuthenticationFilter;
+import com.mongodb.starter.security.JwtProperties;
+import com.mongodb.starter.security.JwtVerifier;
+
 @Configuration
 @EnableWebSecurity
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class SecurityConfig{
+
+    private final JwtProperties jwtProperties;
+
+    public SecurityConfig(JwtProperties jwtProperties) {
+        this.jwtProperties = jwtProperties;
+    }
+
     @Bean
      public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+        if (jwtProperties.isEnabled()) {
+            // Verificación local del JWT; los controladores leen userId y rol del SecurityContext
+            http.addFilterBefore(new JwtAuthenticationFilter(new JwtVerifier(jwtProperties)), UsernamePasswordAuthenticationFilter.class);
+        }
         http
-            .cors(cors -> cors.configurationSource(request -> {
-                CorsConfiguration config = new CorsConfiguration();
-                config.addAllowedOrigin("http://localhost:5173"); // Origen permitido
-                config.addAllowedMethod("*"); // Permitir todos los métodos HTTP
-                config.addAllowedHeader("*"); // Permitir todos los encabezados
-                config.setAllowCredentials(true); // Permitir credenciales
-                return config;
-            }))
+            .cors(cors -> cors.configurationSource(request -> corsConfiguration()))
             .csrf(csrf -> csrf.disable())
             .authorizeHttpRequests(auth -> auth.anyRequest().permitAll())
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
@@ -33,14 +46,23 @@ public class SecurityConfig{
 
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
+        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
+        source.registerCorsConfiguration("/**", corsConfiguration()); // Aplica a todas las rutas
+        return source;
+    }
+
+    // Compartida con ReactiveWebConfig
+    static CorsConfiguration corsConfiguration() {
         CorsConfiguration configuration = new CorsConfiguration();
         configuration.addAllowedOrigin("http://localhost:5173"); // Origen permitido (frontend)
         configuration.addAllowedMethod("*"); // Permitir todos los métodos HTTP
         configuration.addAllowedHeader("*"); // Permitir todos los encabezados
+        configuration.addExposedHeader(RatingController.NEXT_CURSOR_HEADER); // Cursor de paginación
+        configuration.addExposedHeader(HttpHeaders.RETRY_AFTER); // Respuestas 429 del throttling
+        configuration.addExposedHeader(RatingController.RATE_LIMIT_REMAINING_HEADER);
+        configuration.addExposedHeader(HttpHeaders.ETAG); // GET condicional de los listados
+        configuration.addExposedHeader(HttpHeaders.LAST_MODIFIED);
         configuration.setAllowCredentials(true); // Permitir credenciales
-
-        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
-        source.registerCorsConfiguration("/**", configuration); // Aplica a todas las rutas
-        return source;
+        return configuration;
     }
 }
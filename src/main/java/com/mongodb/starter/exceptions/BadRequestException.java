@@ -0,0 +1,15 @@
+package com.mongodb.starter.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.BAD_REQUEST)
+public class BadRequestException extends RuntimeException {
+
+	private static final long serialVersionUID = 4361205417062245131L;
+
+	public BadRequestException(final String message) {
+		super(message);
+	}
+
+}
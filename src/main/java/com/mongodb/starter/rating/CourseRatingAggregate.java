@@ -0,0 +1,40 @@
+package com.mongodb.starter.rating;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// Resumen por curso mantenido con $inc en cada escritura de Rating
+@Getter
+@Setter
+@Document
+public class CourseRatingAggregate {
+
+    @Id
+    private String courseId;
+    private long count;
+    private long sum;
+    // Número de valoraciones por estrella, clave "1".."5"
+    private Map<String, Long> histogram = new HashMap<>();
+    // Crece con cada escritura de una valoración del curso (también si solo cambia la descripción): base de los ETag
+    private long version;
+    private Instant lastModified;
+
+    public CourseRatingAggregate() {
+    }
+
+    public CourseRatingAggregate(String courseId) {
+        this.courseId = courseId;
+    }
+
+    public double getMean() {
+        return count > 0 ? (double) sum / count : 0.0;
+    }
+
+}
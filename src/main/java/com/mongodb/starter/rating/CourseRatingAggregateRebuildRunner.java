@@ -0,0 +1,33 @@
+package com.mongodb.starter.rating;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/*
+ * Reconstruye los agregados de valoraciones a partir de los datos existentes.
+ * Uso: java -jar app.jar --feature.rating.rebuild-aggregates=true
+ */
+@Component
+@ConditionalOnProperty(name = "feature.rating.rebuild-aggregates", havingValue = "true")
+public class CourseRatingAggregateRebuildRunner implements ApplicationRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CourseRatingAggregateRebuildRunner.class);
+
+    private final CourseRatingAggregator courseRatingAggregator;
+
+    public CourseRatingAggregateRebuildRunner(CourseRatingAggregator courseRatingAggregator) {
+        this.courseRatingAggregator = courseRatingAggregator;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        LOGGER.info("=> Rebuilding course rating aggregates.");
+        int courses = courseRatingAggregator.rebuildAll();
+        LOGGER.info("=> Course rating aggregates rebuilt for {} courses.", courses);
+    }
+
+}
@@ -0,0 +1,237 @@
+package com.mongodb.starter.rating;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/*
+ * Mantiene CourseRatingAggregate con actualizaciones atómicas ($inc),
+ * de forma que la media de un curso se lee en O(1) sin recorrer sus valoraciones.
+ */
+@Component
+public class CourseRatingAggregator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CourseRatingAggregator.class);
+    static final int REBUILD_ATTEMPTS = 5;
+
+    private final MongoTemplate mongoTemplate;
+
+    public CourseRatingAggregator(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public void ratingAdded(String courseId, Integer stars) {
+        apply(courseId, added(stars));
+    }
+
+    public void ratingRemoved(String courseId, Integer stars) {
+        apply(courseId, removed(stars));
+    }
+
+    public void ratingChanged(String courseId, Integer oldStars, Integer newStars) {
+        apply(courseId, changed(oldStars, newStars));
+    }
+
+    // Actualizaciones del agregado, compartidas con la API reactiva; todas incrementan version
+    static Update added(Integer stars) {
+        Update update = touched();
+        if (stars != null) {
+            update.inc("count", 1)
+                  .inc("sum", stars)
+                  .inc(histogramKey(stars), 1);
+        }
+        return update;
+    }
+
+    static Update removed(Integer stars) {
+        Update update = touched();
+        if (stars != null) {
+            update.inc("count", -1)
+                  .inc("sum", -stars)
+                  .inc(histogramKey(stars), -1);
+        }
+        return update;
+    }
+
+    // Sin cambio de estrellas solo se incrementa version: la descripción pudo cambiar y el listado del curso con ella
+    static Update changed(Integer oldStars, Integer newStars) {
+        Update update = touched();
+        if (oldStars != null && newStars != null && !oldStars.equals(newStars)) {
+            update.inc("sum", newStars - oldStars)
+                  .inc(histogramKey(oldStars), -1)
+                  .inc(histogramKey(newStars), 1);
+        }
+        return update;
+    }
+
+    private static Update touched() {
+        return new Update()
+                .inc("version", 1)
+                .currentDate("lastModified");
+    }
+
+    public CourseRatingAggregate find(String courseId) {
+        CourseRatingAggregate aggregate = mongoTemplate.findById(courseId, CourseRatingAggregate.class);
+        return aggregate != null ? aggregate : new CourseRatingAggregate(courseId);
+    }
+
+    public Double mean(String courseId) {
+        return find(courseId).getMean();
+    }
+
+    // Agregados de varios cursos en una sola consulta; los cursos sin valoraciones no aparecen
+    public Map<String, CourseRatingAggregate> findAll(Collection<String> courseIds) {
+        return mongoTemplate.find(query(where("_id").in(courseIds)), CourseRatingAggregate.class).stream()
+                .collect(Collectors.toMap(CourseRatingAggregate::getCourseId, Function.identity()));
+    }
+
+    /*
+     * Recalcula el agregado de un curso a partir de sus valoraciones mientras la API sigue escribiendo.
+     * Cada escritura de la API sube version en la misma transacción que la valoración, así que el resultado solo se
+     * guarda si version no cambió durante el recuento; si cambió (o otro escritor creó el documento, que el upsert
+     * convierte en clave duplicada) se vuelve a contar.
+     */
+    public CourseRatingAggregate rebuild(String courseId) {
+        for (int attempt = 1; ; attempt++) {
+            CourseRatingAggregate current = mongoTemplate.findById(courseId, CourseRatingAggregate.class);
+            CourseRatingAggregate aggregate = count(courseId);
+            try {
+                return mongoTemplate.findAndModify(unchanged(courseId, current == null ? 0 : current.getVersion()), rebuilt(aggregate),
+                        FindAndModifyOptions.options().upsert(true).returnNew(true), CourseRatingAggregate.class);
+            } catch (DuplicateKeyException e) {
+                if (attempt >= REBUILD_ATTEMPTS) {
+                    throw new OptimisticLockingFailureException("Course " + courseId + " kept changing while its aggregate was rebuilt", e);
+                }
+                LOGGER.debug("Course {} changed while its aggregate was rebuilt (attempt {}), counting again", courseId, attempt);
+            }
+        }
+    }
+
+    private CourseRatingAggregate count(String courseId) {
+        CourseRatingAggregate aggregate = new CourseRatingAggregate(courseId);
+        for (Document row : mongoTemplate.aggregate(countByStars(courseId), Rating.class, Document.class)) {
+            accumulate(aggregate, row);
+        }
+        return aggregate;
+    }
+
+    static Aggregation countByStars(String courseId) {
+        return newAggregation(
+                match(where("courseId").is(courseId)),
+                group("courseId", "rating").count().as("count"));
+    }
+
+    // El agregado del curso solo si su version sigue siendo la leída (0 también vale para documentos sin version)
+    static Query unchanged(String courseId, long version) {
+        Criteria unchanged = version == 0 ? where("version").in(0L, null) : where("version").is(version);
+        return query(where("_id").is(courseId).andOperator(unchanged));
+    }
+
+    /*
+     * Recalcula los agregados de todos los cursos. Las versiones se leen antes del recuento y cada curso se sobrescribe
+     * solo si no cambió mientras tanto; si la API escribió en él, se vuelve a contar ese curso con rebuild.
+     * Los que ya no tienen valoraciones se ponen a cero en lugar de borrarse: un documento nuevo empezaría otra vez en
+     * version 1 y repetiría ETags ya emitidos con otro contenido.
+     */
+    public int rebuildAll() {
+        Query stored = new Query();
+        stored.fields().include("version").include("count").include("sum");
+        Map<String, CourseRatingAggregate> before = mongoTemplate.find(stored, CourseRatingAggregate.class).stream()
+                .collect(Collectors.toMap(CourseRatingAggregate::getCourseId, Function.identity()));
+
+        Aggregation aggregation = newAggregation(group("courseId", "rating").count().as("count"));
+        Map<String, CourseRatingAggregate> aggregates = new HashMap<>();
+        for (Document row : mongoTemplate.aggregate(aggregation, Rating.class, Document.class)) {
+            Document key = row.get("_id", Document.class);
+            String courseId = key.getString("courseId");
+            if (courseId != null) {
+                accumulate(aggregates.computeIfAbsent(courseId, CourseRatingAggregate::new), row);
+            }
+        }
+        before.values().stream()
+                .filter(aggregate -> !aggregates.containsKey(aggregate.getCourseId()))
+                .filter(aggregate -> aggregate.getCount() != 0 || aggregate.getSum() != 0)
+                .forEach(aggregate -> aggregates.put(aggregate.getCourseId(), new CourseRatingAggregate(aggregate.getCourseId())));
+
+        int recounted = 0;
+        for (CourseRatingAggregate aggregate : aggregates.values()) {
+            CourseRatingAggregate previous = before.get(aggregate.getCourseId());
+            if (!replaceIfUnchanged(aggregate, previous == null ? 0 : previous.getVersion())) {
+                rebuild(aggregate.getCourseId());
+                recounted++;
+            }
+        }
+        LOGGER.info("Rebuilt rating aggregates for {} courses ({} counted again after concurrent writes)", aggregates.size(), recounted);
+        return aggregates.size();
+    }
+
+    private boolean replaceIfUnchanged(CourseRatingAggregate aggregate, long version) {
+        try {
+            mongoTemplate.upsert(unchanged(aggregate.getCourseId(), version), rebuilt(aggregate), CourseRatingAggregate.class);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    // Sustituye los contadores sin reiniciar version: un ETag ya emitido no puede volver a corresponder a otro contenido
+    static Update rebuilt(CourseRatingAggregate aggregate) {
+        return touched()
+                .set("count", aggregate.getCount())
+                .set("sum", aggregate.getSum())
+                .set("histogram", aggregate.getHistogram());
+    }
+
+    static CourseRatingAggregate accumulate(CourseRatingAggregate aggregate, Document row) {
+        Object stars = row.get("_id", Document.class).get("rating");
+        if (!(stars instanceof Number)) {
+            return aggregate;
+        }
+        long count = ((Number) row.get("count")).longValue();
+        int value = ((Number) stars).intValue();
+        aggregate.setCount(aggregate.getCount() + count);
+        aggregate.setSum(aggregate.getSum() + value * count);
+        aggregate.getHistogram().merge(String.valueOf(value), count, Long::sum);
+        return aggregate;
+    }
+
+    /*
+     * Sin documento (curso sin agregado todavía) un $inc con upsert partiría de cero: contaría mal un curso con
+     * valoraciones anteriores y un decremento dejaría contadores negativos. En ese caso se cuenta el curso entero,
+     * que ya incluye la escritura en curso.
+     */
+    private void apply(String courseId, Update update) {
+        if (courseId == null || update == null) {
+            return;
+        }
+        if (mongoTemplate.updateFirst(query(where("_id").is(courseId)), update, CourseRatingAggregate.class).getMatchedCount() == 0) {
+            rebuild(courseId);
+        }
+    }
+
+    private static String histogramKey(int stars) {
+        return "histogram." + stars;
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.mongodb.starter.rating;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/*
+ * Un documento nuevo por cada cambio de media de un curso, insertado en la transacción de la valoración.
+ * Solo se inserta: dos escrituras del mismo curso nunca tocan el mismo documento. El dispatcher los agrupa
+ * en la entrada del curso (CourseRatingOutboxEntry) y los borra.
+ */
+@Getter
+@Setter
+@Document(collection = "courseRatingChanges")
+public class CourseRatingChange {
+
+    @Id
+    private String id;
+    private String courseId;
+    private Instant createdAt;
+
+    static CourseRatingChange of(String courseId, Instant createdAt) {
+        CourseRatingChange change = new CourseRatingChange();
+        change.setCourseId(courseId);
+        change.setCreatedAt(createdAt);
+        return change;
+    }
+
+}
@@ -0,0 +1,166 @@
+package com.mongodb.starter.rating;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/*
+ * Vacía el outbox de medias por curso en segundo plano: reserva lotes, lee las medias de los agregados
+ * en una sola consulta y envía los PATCH al servicio de cursos con concurrencia limitada.
+ * Los fallos se reintentan con backoff exponencial; una entrada solo se da por enviada si su versión no cambió.
+ */
+@Component
+public class CourseRatingDispatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CourseRatingDispatcher.class);
+
+    public static final String VERSION_HEADER = "X-Rating-Version";
+
+    private final CourseRatingOutbox outbox;
+    private final CourseRatingAggregator courseRatingAggregator;
+    private final CourseSyncConfig config;
+    private final WebClient webClient;
+    private final Timer flushTimer;
+    private final Timer lagTimer;
+    private final Counter failures;
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong oldestLagMs = new AtomicLong();
+
+    @Value("${courses.url}")
+    private String coursesURL;
+
+    @Value("${rating.url}")
+    private String ratingUrl;
+
+    public CourseRatingDispatcher(CourseRatingOutbox outbox, CourseRatingAggregator courseRatingAggregator,
+                                  CourseSyncConfig config, @Qualifier("coursesWebClient") WebClient coursesWebClient,
+                                  MeterRegistry meterRegistry) {
+        this.outbox = outbox;
+        this.courseRatingAggregator = courseRatingAggregator;
+        this.config = config;
+        this.webClient = coursesWebClient;
+        this.flushTimer = Timer.builder("rating.course_sync.flush")
+                .description("Time spent sending a batch of course means to the courses service")
+                .register(meterRegistry);
+        this.lagTimer = Timer.builder("rating.course_sync.lag")
+                .description("Time from the first unsent change of a course until the courses service accepted it")
+                .register(meterRegistry);
+        this.failures = Counter.builder("rating.course_sync.failures")
+                .description("Course mean updates rejected by the courses service")
+                .register(meterRegistry);
+        meterRegistry.gauge("rating.course_sync.pending", pending);
+        meterRegistry.gauge("rating.course_sync.oldest_pending_ms", oldestLagMs);
+    }
+
+    @Scheduled(fixedDelayString = "${feature.rating.course-sync.poll-interval-ms:1000}")
+    public void dispatch() {
+        try {
+            // Primero se agrupan en su entrada los cambios insertados por la API desde la última pasada
+            int collected;
+            do {
+                collected = outbox.collectChanges(config.getBatchSize());
+            } while (collected == config.getBatchSize());
+            int claimed;
+            do {
+                claimed = dispatchBatch();
+            } while (claimed == config.getBatchSize());
+            refreshGauges();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Course rating outbox dispatch failed: {}", e.getMessage());
+        }
+    }
+
+    // Devuelve el número de entradas reservadas
+    int dispatchBatch() {
+        String leaseOwner = UUID.randomUUID().toString();
+        List<CourseRatingOutboxEntry> batch = outbox.claim(leaseOwner, config.getBatchSize(), config.getLeaseMs());
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, CourseRatingAggregate> aggregates =
+                courseRatingAggregator.findAll(batch.stream().map(CourseRatingOutboxEntry::getCourseId).toList());
+
+        List<Result> results;
+        try {
+            results = flushTimer.record(() -> Flux.fromIterable(batch)
+                    .flatMap(entry -> send(entry, mean(aggregates, entry.getCourseId())), config.getConcurrency())
+                    .collectList()
+                    .block(Duration.ofMillis(config.getTimeoutMs())));
+        } catch (IllegalStateException e) {
+            // El lote no terminó a tiempo: las entradas siguen reservadas y se reintentan al vencer la reserva
+            LOGGER.warn("Course rating batch of {} courses timed out: {}", batch.size(), e.getMessage());
+            return batch.size();
+        }
+
+        for (Result result : results) {
+            CourseRatingOutboxEntry entry = result.entry();
+            if (result.error() == null) {
+                if (entry.getPendingSince() != null) {
+                    lagTimer.record(Duration.between(entry.getPendingSince(), Instant.now()));
+                }
+                outbox.markDispatched(entry, leaseOwner, config.getIntervalMs());
+            } else {
+                failures.increment();
+                long backoff = backoffMs(entry.getAttempts());
+                LOGGER.warn("Could not update rating of course {} (attempt {}), retrying in {} ms: {}",
+                        entry.getCourseId(), entry.getAttempts() + 1, backoff, result.error());
+                outbox.markFailed(entry, leaseOwner, backoff, result.error());
+            }
+        }
+        return batch.size();
+    }
+
+    private Mono<Result> send(CourseRatingOutboxEntry entry, double mean) {
+        return webClient.patch()
+                .uri(coursesURL + entry.getCourseId() + ratingUrl)
+                // Permite al servicio de cursos descartar envíos repetidos o desordenados
+                .header(VERSION_HEADER, String.valueOf(entry.getVersion()))
+                .bodyValue(Map.of("rating", mean))
+                .retrieve()
+                .toBodilessEntity()
+                .map(response -> new Result(entry, null))
+                .onErrorResume(e -> Mono.just(new Result(entry, String.valueOf(e.getMessage()))));
+    }
+
+    // Exponencial con jitter, acotado por backoff-max-ms
+    long backoffMs(int attempts) {
+        long base = config.getBackoffInitialMs() << Math.min(attempts, 20);
+        long capped = Math.min(config.getBackoffMaxMs(), base);
+        return capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1);
+    }
+
+    private void refreshGauges() {
+        pending.set(outbox.pendingCount());
+        oldestLagMs.set(outbox.oldestPendingSince()
+                .map(since -> Math.max(0, Duration.between(since, Instant.now()).toMillis()))
+                .orElse(0L));
+    }
+
+    private static double mean(Map<String, CourseRatingAggregate> aggregates, String courseId) {
+        CourseRatingAggregate aggregate = aggregates.get(courseId);
+        return aggregate != null ? aggregate.getMean() : 0.0;
+    }
+
+    private record Result(CourseRatingOutboxEntry entry, String error) {
+    }
+
+}
@@ -0,0 +1,149 @@
+package com.mongodb.starter.rating;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/*
+ * Outbox de cambios de media por curso. Las escrituras de la API solo insertan un CourseRatingChange
+ * (colección courseRatingChanges) en su transacción; el dispatcher los agrupa después en una entrada por curso
+ * (colección courseRatingOutbox). Cuando una entrada llega a la versión N, los cambios que la subieron ya están
+ * confirmados junto con su CourseRatingAggregate, así que la media que lee el dispatcher es al menos igual de reciente.
+ */
+@Component
+public class CourseRatingOutbox {
+
+    private final MongoTemplate mongoTemplate;
+
+    public CourseRatingOutbox(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public void courseChanged(String courseId) {
+        if (courseId == null) {
+            return;
+        }
+        mongoTemplate.insert(CourseRatingChange.of(courseId, Instant.now()));
+    }
+
+    /*
+     * Agrupa hasta limit cambios, del más antiguo al más reciente, en la entrada de su curso y los borra; devuelve
+     * cuántos agrupó. Si el proceso cae entre el upsert y el borrado, o dos réplicas agrupan los mismos cambios,
+     * la versión sube de más y el curso se envía una vez más: nunca se pierde un cambio.
+     */
+    public int collectChanges(int limit) {
+        Query oldest = new Query().with(Sort.by(Sort.Direction.ASC, "_id")).limit(limit);
+        List<CourseRatingChange> changes = mongoTemplate.find(oldest, CourseRatingChange.class);
+        if (changes.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, List<CourseRatingChange>> byCourse = changes.stream()
+                .collect(Collectors.groupingBy(CourseRatingChange::getCourseId, LinkedHashMap::new, Collectors.toList()));
+        byCourse.forEach((courseId, courseChanges) -> {
+            Instant since = courseChanges.stream().map(CourseRatingChange::getCreatedAt).min(Instant::compareTo).orElseGet(Instant::now);
+            mongoTemplate.upsert(query(where("_id").is(courseId)), changed(courseChanges.size(), since), CourseRatingOutboxEntry.class);
+        });
+        mongoTemplate.remove(query(where("_id").in(changes.stream().map(CourseRatingChange::getId).toList())),
+                CourseRatingChange.class);
+        return changes.size();
+    }
+
+    static Update changed(long count, Instant since) {
+        return new Update()
+                .inc("version", count)
+                .set("pending", true)
+                .min("pendingSince", since)
+                .setOnInsert("nextAttemptAt", since);
+    }
+
+    // Reserva hasta batchSize entradas listas para enviar; leaseOwner debe ser único por reserva
+    public List<CourseRatingOutboxEntry> claim(String leaseOwner, int batchSize, long leaseMs) {
+        Instant now = Instant.now();
+        Query candidates = query(claimable(now)).limit(batchSize);
+        candidates.fields().include("_id");
+        List<String> courseIds = mongoTemplate.find(candidates, CourseRatingOutboxEntry.class).stream()
+                .map(CourseRatingOutboxEntry::getCourseId)
+                .toList();
+        if (courseIds.isEmpty()) {
+            return List.of();
+        }
+
+        // Otra réplica puede haber reservado alguna entre medias: solo se devuelven las nuestras
+        mongoTemplate.updateMulti(query(claimable(now).and("_id").in(courseIds)), new Update()
+                .set("leaseOwner", leaseOwner)
+                .set("leaseUntil", now.plusMillis(leaseMs)), CourseRatingOutboxEntry.class);
+        return mongoTemplate.find(query(where("_id").in(courseIds).and("leaseOwner").is(leaseOwner)),
+                CourseRatingOutboxEntry.class);
+    }
+
+    public void markDispatched(CourseRatingOutboxEntry entry, String leaseOwner, long intervalMs) {
+        Instant nextAttemptAt = Instant.now().plusMillis(intervalMs);
+        boolean done = mongoTemplate.updateFirst(
+                query(where("_id").is(entry.getCourseId()).and("leaseOwner").is(leaseOwner).and("version").is(entry.getVersion())),
+                new Update()
+                        .set("pending", false)
+                        .set("dispatchedVersion", entry.getVersion())
+                        .set("attempts", 0)
+                        .set("nextAttemptAt", nextAttemptAt)
+                        .unset("pendingSince")
+                        .unset("leaseOwner")
+                        .unset("leaseUntil")
+                        .unset("lastError"),
+                CourseRatingOutboxEntry.class).getModifiedCount() > 0;
+        if (done) {
+            return;
+        }
+        // Hubo cambios durante el envío: la entrada sigue pendiente con la versión nueva
+        mongoTemplate.updateFirst(query(where("_id").is(entry.getCourseId()).and("leaseOwner").is(leaseOwner)),
+                new Update()
+                        .max("dispatchedVersion", entry.getVersion())
+                        .set("attempts", 0)
+                        .set("nextAttemptAt", nextAttemptAt)
+                        .unset("leaseOwner")
+                        .unset("leaseUntil")
+                        .unset("lastError"),
+                CourseRatingOutboxEntry.class);
+    }
+
+    public void markFailed(CourseRatingOutboxEntry entry, String leaseOwner, long backoffMs, String error) {
+        mongoTemplate.updateFirst(query(where("_id").is(entry.getCourseId()).and("leaseOwner").is(leaseOwner)),
+                new Update()
+                        .inc("attempts", 1)
+                        .set("nextAttemptAt", Instant.now().plusMillis(backoffMs))
+                        .set("lastError", error)
+                        .unset("leaseOwner")
+                        .unset("leaseUntil"),
+                CourseRatingOutboxEntry.class);
+    }
+
+    public long pendingCount() {
+        return mongoTemplate.count(query(where("pending").is(true)), CourseRatingOutboxEntry.class);
+    }
+
+    public Optional<Instant> oldestPendingSince() {
+        Query oldest = query(where("pending").is(true)).with(Sort.by(Sort.Direction.ASC, "pendingSince")).limit(1);
+        return Optional.ofNullable(mongoTemplate.findOne(oldest, CourseRatingOutboxEntry.class))
+                .map(CourseRatingOutboxEntry::getPendingSince);
+    }
+
+    private Criteria claimable(Instant now) {
+        return where("pending").is(true)
+                .and("nextAttemptAt").lte(now)
+                .and("leaseUntil").not().gt(now);
+    }
+
+}
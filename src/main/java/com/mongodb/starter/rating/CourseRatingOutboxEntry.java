@@ -0,0 +1,32 @@
+package com.mongodb.starter.rating;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// Una entrada por curso: version crece con cada cambio y dispatchedVersion es la última enviada al servicio de cursos
+@Getter
+@Setter
+@Document(collection = "courseRatingOutbox")
+@CompoundIndex(name = "pending_nextAttemptAt", def = "{'pending': 1, 'nextAttemptAt': 1}")
+public class CourseRatingOutboxEntry {
+
+    @Id
+    private String courseId;
+    private long version;
+    private long dispatchedVersion;
+    private boolean pending;
+    // Primer cambio aún no enviado, para medir el retraso
+    private Instant pendingSince;
+    private Instant nextAttemptAt;
+    private int attempts;
+    private String leaseOwner;
+    private Instant leaseUntil;
+    private String lastError;
+
+}
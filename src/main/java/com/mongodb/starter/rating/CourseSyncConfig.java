@@ -0,0 +1,25 @@
+package com.mongodb.starter.rating;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Configuration
+@ConfigurationProperties(prefix = "feature.rating.course-sync")
+@Getter
+@Setter
+public class CourseSyncConfig {
+    // Separación mínima entre dos envíos del mismo curso
+    private long intervalMs = 5000;
+    private long pollIntervalMs = 1000;
+    private int batchSize = 100;
+    // Tiempo que una réplica se reserva las entradas que está enviando
+    private long leaseMs = 30000;
+    private int concurrency = 8;
+    private long timeoutMs = 10000;
+    private long backoffInitialMs = 1000;
+    private long backoffMaxMs = 300000;
+
+}
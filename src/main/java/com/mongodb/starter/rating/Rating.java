@@ -2,6 +2,9 @@ package com.mongodb.starter.rating;
 
 import java.time.LocalDateTime;
 
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import jakarta.persistence.Column;
@@ -18,6 +21,11 @@ import lombok.Setter;
 @Setter
 @Entity
 @Document
+@CompoundIndexes({
+    // Listados por curso (más recientes primero) y paginación por cursor (date, _id)
+    @CompoundIndex(name = "courseId_date_desc", def = "{ 'courseId': 1, 'date': -1, '_id': -1 }"),
+    @CompoundIndex(name = "userId_courseId", def = "{ 'userId': 1, 'courseId': 1 }")
+})
 public class Rating {
 
     @NotBlank
@@ -27,6 +35,7 @@ public class Rating {
     @Min(1)
     @Max(5)
     Integer rating;
+    @Indexed(name = "userId")
     String userId;
     String username;
     String courseId;
@@ -0,0 +1,73 @@
+package com.mongodb.starter.rating;
+
+import java.util.concurrent.Callable;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+/*
+ * Caché de lectura de valoraciones. Las escrituras invalidan por id justo después de escribir en Mongo; las páginas
+ * serializadas de cada curso no se invalidan, se descartan al cambiar la versión del curso.
+ * Caffeine bloquea la invalidación mientras hay una carga en curso para la misma clave,
+ * así que una lectura que empezó antes de la escritura no puede dejar un valor obsoleto en la caché.
+ */
+@Component
+public class RatingCache {
+
+    public static final String RATINGS = "ratings";
+    public static final String SERIALIZED_HEAD_PAGES = "serializedHeadPages";
+
+    private final Cache ratings;
+    private final Cache serializedHeadPages;
+
+    public RatingCache(CacheManager cacheManager) {
+        this.ratings = cacheManager.getCache(RATINGS);
+        this.serializedHeadPages = cacheManager.getCache(SERIALIZED_HEAD_PAGES);
+    }
+
+    // null = no existe; también se guarda para no repetir consultas de ids inexistentes
+    public Rating rating(String id, Callable<Rating> loader) {
+        return ratings.get(id, loader);
+    }
+
+    /*
+     * Primera página ya serializada, por curso y tamaño de página. Solo se sirve la entrada de la misma versión del curso:
+     * cualquier escritura sube la versión y deja inservibles todas las entradas del curso, en esta réplica y en las demás,
+     * sin tener que conocer los tamaños de página cacheados; las antiguas salen por TTL o por peso.
+     */
+    public SerializedRatingPage serializedHeadPage(String courseId, int pageSize, long version, Callable<SerializedRatingPage> loader) {
+        String key = courseId + ":" + pageSize;
+        SerializedRatingPage page = serializedHeadPages.get(key, loader);
+        if (page.getVersion() == version) {
+            return page;
+        }
+        SerializedRatingPage current = valueOf(loader);
+        // Una petición que leyó una versión anterior no sustituye a la entrada más reciente
+        if (page.getVersion() < version) {
+            serializedHeadPages.put(key, current);
+        }
+        return current;
+    }
+
+    private static <T> T valueOf(Callable<T> loader) {
+        try {
+            return loader.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void evict(Rating rating) {
+        evictRating(rating.getId());
+    }
+
+    public void evictRating(String id) {
+        if (id != null) {
+            ratings.evict(id);
+        }
+    }
+
+}
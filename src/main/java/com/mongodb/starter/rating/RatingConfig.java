@@ -1,5 +1,8 @@
 package com.mongodb.starter.rating;
 
+import java.util.EnumMap;
+import java.util.Map;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
@@ -14,5 +17,57 @@ public class RatingConfig {
     private boolean enabled;
     private int requestsPerHour;  
     private int burstSize;   
+    private int defaultPageSize = 50;
+    private int maxPageSize = 200;
+    // Cursos por petición en /api/v1/ratings/summary y segundos que el cliente o un CDN pueden cachear la respuesta
+    private int maxSummaryCourses = 200;
+    private long summaryMaxAgeSeconds = 60;
+    // Presupuesto de latencia de create (reactivo) para la consulta del nombre del estudiante
+    private long createBudgetMs = 2000;
+    // Un bucket sin uso durante este tiempo ya estaría lleno: se descarta
+    private long throttleIdleMs = 3600000;
+    // Límite de buckets en memoria
+    private long throttleMaxBuckets = 1000000;
+    // local: límite por pod; distributed: además un límite por hora común a todas las réplicas, en Mongo
+    private ThrottleMode throttleMode = ThrottleMode.LOCAL;
+    // Tokens que un pod reserva de Mongo de una vez: más grande, menos escrituras y menos precisión
+    private int throttleLeaseSize = 5;
+    // Tiempo máximo que un pod conserva tokens reservados sin usar
+    private long throttleLeaseMs = 10000;
+    // Filas por bulkWrite en la importación masiva
+    private int importBatchSize = 1000;
+    // Errores por fila que se devuelven en el informe de importación; el resto solo se cuentan
+    private int importMaxReportedErrors = 1000;
+    // Intentos de la transacción valoración + agregado + outbox cuando Mongo la aborta por un conflicto transitorio
+    private int transactionMaxAttempts = 5;
+    // Espera base entre intentos; se dobla en cada uno y se aplica con jitter para que los escritores en conflicto se separen
+    private long transactionBackoffMs = 20;
+
+    // Límites por operación: feature.rating.policies.<create|update|delete>.<user|course|global>.*
+    private Map<Operation, ThrottlePolicy> policies = new EnumMap<>(Operation.class);
+
+    public enum ThrottleMode {
+        LOCAL, DISTRIBUTED
+    }
+
+    public enum Operation {
+        CREATE, UPDATE, DELETE
+    }
+
+    // Sin user se aplica requestsPerHour/burstSize en un bucket común a las tres operaciones; sin course o global, no hay límite
+    @Getter
+    @Setter
+    public static class ThrottlePolicy {
+        private Limit user;
+        private Limit course;
+        private Limit global;
+    }
+
+    @Getter
+    @Setter
+    public static class Limit {
+        private int requestsPerHour;
+        private int burstSize;
+    }
 
 }
\ No newline at end of file
@@ -1,15 +1,15 @@
 package com.mongodb.starter.rating;
 
 import java.util.List;
-import java.util.Map;
+import java.util.stream.Stream;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.Errors;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -20,14 +20,19 @@ import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.client.ResourceAccessException;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.mongodb.starter.exceptions.ValidationException;
-import com.mongodb.starter.student.StudentDto;
+import com.mongodb.starter.student.StudentProfileService;
 import com.mongodb.starter.student.UserService;
 import com.mongodb.starter.util.MessageResponse;
 import com.mongodb.starter.util.RestPreconditions;
@@ -38,15 +43,16 @@ import jakarta.validation.Valid;
 
 @RestController
 @RequestMapping("/api/v1/course/{courseId}/ratings/")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @Tag(name = "Ratings", description = "The ratings management API")
 public class RatingController {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String RATE_LIMIT_REMAINING_HEADER = "X-RateLimit-Remaining";
     
     @Autowired
     private final RatingService ratingService;
     
-    @Autowired
-    private final RestTemplate restTemplate;
-    
     @Autowired
     private final RatingConfig ratingConfig;
     
@@ -57,20 +63,13 @@ public class RatingController {
     private final RatingValidator ratingValidator;
 
     @Autowired
-    private WebClient.Builder webClientBuilder;
+    private StudentProfileService studentProfileService;
 
-    @Value("${courses.url}")
-    private String coursesURL;
-
-    @Value("${rating.url}")
-    private String ratingUrl;
-
-    @Value("${student.url}")
-    private String studentServiceUrl;
+    @Autowired
+    private ObjectMapper objectMapper;
 
-    public RatingController(RatingService ratingService, RestTemplate restTemplate, RatingConfig ratingConfig, RatingValidator ratingValidator,  UserService userService) {
+    public RatingController(RatingService ratingService, RatingConfig ratingConfig, RatingValidator ratingValidator,  UserService userService) {
         this.ratingService = ratingService;
-        this.restTemplate = restTemplate;
         this.ratingConfig = ratingConfig;
         this.ratingValidator = ratingValidator;
         this.userService = userService;
@@ -93,40 +92,10 @@ public class RatingController {
         Rating newRating = new Rating();
         BeanUtils.copyProperties(rating, newRating, "id");
         newRating.setCourseId(courseId);
+        newRating.setUserId(userId);
 
         try {
-            HttpHeaders headers = new HttpHeaders();
-            String tokenToUse = token;
-            if (!token.startsWith("Bearer ")) {
-                tokenToUse = "Bearer " + token;
-            }
-            headers.set("Authorization", tokenToUse);
-
-            // Crea una entidad HTTP con los encabezados
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-
-            // Llama al servicio con RestTemplate
-            ResponseEntity<StudentDto> response = restTemplate.exchange(
-            studentServiceUrl,  // URL del servicio
-            HttpMethod.GET,     // Método HTTP
-            entity,             // Entidad con encabezados
-            StudentDto.class    // Tipo de respuesta esperada
-        );
-
-        // Obtener el objeto StudentDto de la respuesta
-        StudentDto student = response.getBody();
-
-        // Acceder al campo "name"
-        if (student != null && student.getContactInformation() != null) {
-            String name = student.getContactInformation().getName();
-            newRating.setUsername(name);
-            System.out.println("Name: " + name);
-        } else {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
-                       
-            newRating.setUserId(userId);
-            Errors errors = ratingValidator.validateObject(newRating);
+            Errors errors = ratingValidator.validateRequest(newRating);
             if(errors.hasErrors()) {
                 StringBuilder errorMessage = new StringBuilder();
                 for (org.springframework.validation.FieldError error : errors.getFieldErrors()) {
@@ -137,17 +106,30 @@ public class RatingController {
                 }
                 throw new ValidationException(errorMessage.toString());
             }
+
+            // En el hilo de la petición: una cola compartida (la del export asíncrono) añadiría espera al presupuesto.
+            // La consulta la acotan los timeouts de outbound.http.student
+            String name = studentProfileService.findStudentName(userId, token);
+            if (name == null) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+            newRating.setUsername(name);
+
+            // La media se propaga al servicio de cursos desde el outbox, fuera de esta petición
             Rating savedRating = this.ratingService.saveRating(newRating);
-            Double mean = this.ratingService.ratingMean(courseId);
-            updateCourseRating(courseId, mean);
             
-            return new ResponseEntity<>(savedRating, HttpStatus.CREATED);
+            return new ResponseEntity<>(savedRating, rateLimitHeaders(ratingService.remainingRequests(RatingConfig.Operation.CREATE,
+                    userId, courseId)), HttpStatus.CREATED);
         } catch (ResourceAccessException  e) {
             throw new ResourceAccessException("Service Unavailable");
         } 
     }
 
     public ResponseEntity<String> controllerFallback(Throwable throwable) {
+        // Un 429 no es un fallo del servicio: se responde tal cual
+        if (throwable instanceof RatingService.ThrottlingException throttled) {
+            throw throttled;
+        }
         return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
                 .body("Fallback Circuit Breaker Activo: " + throwable.getMessage());
     }
@@ -159,28 +141,27 @@ public class RatingController {
         
         token = token.trim();
         String userId = userService.extractUserId(token);
-        Rating aux = RestPreconditions.checkNotNull(ratingService.findRatingById(ratingId), "Rating", "ID", ratingId);
 
-        if(rating.getUserId().equals(userId)){
-            Errors errors = ratingValidator.validateObject(aux);
-            if(errors.hasErrors()) {
-                StringBuilder errorMessage = new StringBuilder();
-                for (org.springframework.validation.FieldError error : errors.getFieldErrors()) {
-                    errorMessage.append(error.getField())
-                                .append(": ")
-                                .append(error.getDefaultMessage())
-                                .append("\n");
-                }
-                throw new ValidationException(errorMessage.toString());
+        Errors errors = ratingValidator.validateChanges(rating);
+        if(errors.hasErrors()) {
+            StringBuilder errorMessage = new StringBuilder();
+            for (org.springframework.validation.FieldError error : errors.getFieldErrors()) {
+                errorMessage.append(error.getField())
+                            .append(": ")
+                            .append(error.getDefaultMessage())
+                            .append("\n");
             }
-            Rating res = ratingService.updateRating(rating, ratingId);
-            Double mean = this.ratingService.ratingMean(courseId);
-            updateCourseRating(courseId, mean);
-
-            return new ResponseEntity<>(res, HttpStatus.OK);
+            throw new ValidationException(errorMessage.toString());
         }
 
-        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
+        try {
+            // La comprobación del propietario va en el filtro {_id, userId} de la propia escritura
+            Rating res = ratingService.updateRating(rating, ratingId, userId, courseId);
+            return new ResponseEntity<>(res, rateLimitHeaders(ratingService.remainingRequests(RatingConfig.Operation.UPDATE,
+                    userId, courseId)), HttpStatus.OK);
+        } catch (RatingService.RatingOwnershipException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
+        }
     }
     
     //DELETE	
@@ -190,17 +171,14 @@ public class RatingController {
 		
         token = token.trim();
         String userId = userService.extractUserId(token);
-		Rating rating = RestPreconditions.checkNotNull(ratingService.findRatingById(ratingId), "Rating", "ID", ratingId);
-		
-        if(rating.getUserId().equals(userId)){
-            ratingService.deleteRating(ratingId);
-            Double mean = this.ratingService.ratingMean(courseId);
-            updateCourseRating(courseId, mean);
 
-            return new ResponseEntity<>(new MessageResponse("Rating deleted!"), HttpStatus.OK);
+        try {
+            ratingService.deleteRating(ratingId, userId, courseId);
+            return new ResponseEntity<>(new MessageResponse("Rating deleted!"),
+                    rateLimitHeaders(ratingService.remainingRequests(RatingConfig.Operation.DELETE, userId, courseId)), HttpStatus.OK);
+        } catch (RatingService.RatingOwnershipException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
         }
-
-        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
 	}
 
 
@@ -211,30 +189,115 @@ public class RatingController {
 			return new ResponseEntity<>(rating, HttpStatus.OK);
 	} 
 
-    @GetMapping
-	public ResponseEntity<List<Rating>> findAllByCourse(@PathVariable("courseId") String courseId) {
-	    return new ResponseEntity<>((List<Rating>) this.ratingService.findAllRatingsByCourse(courseId), HttpStatus.OK);
+    // Páginas siguientes (con next); la primera la sirve findFirstPageByCourse
+    @GetMapping(params = "next")
+	public ResponseEntity<List<Rating>> findAllByCourse(@PathVariable("courseId") String courseId,
+	                                                    @RequestParam(value = "limit", required = false) Integer limit,
+	                                                    @RequestParam("next") String next,
+	                                                    WebRequest request) {
+	    // La versión del curso se lee antes que la lista: el contenido servido nunca es más antiguo que su ETag
+	    CourseRatingAggregate course = ratingService.findCourseAggregate(courseId);
+	    String etag = listingETag(course, RatingService.pageSize(ratingConfig, limit), next);
+	    if (request.checkNotModified(etag)) {
+	        return new ResponseEntity<>(listingHeaders(), HttpStatus.NOT_MODIFIED);
+	    }
+
+	    RatingPage page = this.ratingService.findRatingsPageByCourse(courseId, limit, next);
+	    HttpHeaders headers = listingHeaders();
+	    if (page.getNext() != null) {
+	        headers.set(NEXT_CURSOR_HEADER, page.getNext());
+	    }
+	    return new ResponseEntity<>(page.getRatings(), headers, HttpStatus.OK);
 
 	}
 
-    private void updateCourseRating(String courseId, Double mean) {
-        try {
-            // Realizar la solicitud PATCH
-            webClientBuilder.build().patch()
-                    .uri(coursesURL+courseId+ratingUrl)
-                    .bodyValue(Map.of("rating", mean))
-                    .retrieve()
-                    .toBodilessEntity()
-                    .block(); // Bloquea la operación para simplificar la ejecución
+    // Primera página (sin next), la más pedida: bytes JSON ya serializados y, si el cliente acepta gzip, ya comprimidos
+    @GetMapping(params = "!next")
+    public ResponseEntity<byte[]> findFirstPageByCourse(@PathVariable("courseId") String courseId,
+                                                        @RequestParam(value = "limit", required = false) Integer limit,
+                                                        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                                        WebRequest request) {
+        CourseRatingAggregate course = ratingService.findCourseAggregate(courseId);
+        boolean gzip = SerializedRatingPage.acceptsGzip(acceptEncoding);
+        // Cada codificación es una representación distinta y lleva su propio ETag
+        String etag = listingETag(course, RatingService.pageSize(ratingConfig, limit), null, gzip);
+        HttpHeaders headers = listingHeaders();
+        headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+        if (request.checkNotModified(etag)) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
 
-            
-        } catch (WebClientResponseException e) {
-            // Manejar errores específicos de HTTP
-            System.err.println("Error HTTP: " + e.getStatusCode() + " - " + e.getResponseBodyAsString());
-        } catch (Exception e) {
-            // Manejar otros errores
-            System.err.println("Error inesperado: " + e.getMessage());
+        SerializedRatingPage page = ratingService.findSerializedHeadPage(courseId, limit, course.getVersion(),
+                ratings -> SerializedRatingPage.encode(course.getVersion(), ratings, objectMapper));
+        if (page.getNext() != null) {
+            headers.set(NEXT_CURSOR_HEADER, page.getNext());
+        }
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (gzip && page.getGzip() != null) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            return new ResponseEntity<>(page.getGzip(), headers, HttpStatus.OK);
         }
+        return new ResponseEntity<>(page.getJson(), headers, HttpStatus.OK);
+    }
+
+    static String listingETag(CourseRatingAggregate course, int pageSize, String next) {
+        return listingETag(course, pageSize, next, false);
+    }
+
+    // ETag fuerte del listado: versión del curso más los parámetros que cambian la respuesta
+    static String listingETag(CourseRatingAggregate course, int pageSize, String next, boolean gzip) {
+        StringBuilder etag = new StringBuilder("\"").append(course.getVersion()).append('-').append(pageSize);
+        if (next != null && !next.isBlank()) {
+            etag.append('-').append(next);
+        }
+        if (gzip) {
+            etag.append("-gzip");
+        }
+        return etag.append('"').toString();
+    }
+
+    /*
+     * El ETag lo escribe checkNotModified en la respuesta; repetirlo aquí lo duplicaría en el 304.
+     * Sin Last-Modified: Spring atendería If-Modified-Since, que tiene precisión de segundos, y dos escrituras
+     * en el mismo segundo darían un 304 falso.
+     */
+    // Peticiones que le quedan al cliente para la operación, en las respuestas admitidas y en los 429
+    static HttpHeaders rateLimitHeaders(long remaining) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(RATE_LIMIT_REMAINING_HEADER, Long.toString(remaining));
+        return headers;
+    }
+
+    static HttpHeaders listingHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        // Los clientes pueden guardar la respuesta, pero deben revalidarla con If-None-Match antes de usarla
+        headers.setCacheControl(CacheControl.noCache());
+        return headers;
+    }
+
+    @GetMapping(value = "export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> export(@PathVariable("courseId") String courseId) {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        StreamingResponseBody body = out -> {
+            try (Stream<Rating> ratings = ratingService.streamAllRatingsByCourse(courseId);
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                long written = 0;
+                for (Rating rating : (Iterable<Rating>) ratings::iterator) {
+                    writer.writeValue(generator, rating);
+                    generator.writeRaw('\n');
+                    // Vacía al cliente una vez por lote leído del cursor
+                    if (++written % RatingRepository.EXPORT_BATCH_SIZE == 0) {
+                        generator.flush();
+                    }
+                }
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
 }
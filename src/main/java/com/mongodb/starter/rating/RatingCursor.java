@@ -0,0 +1,65 @@
+package com.mongodb.starter.rating;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import org.bson.types.ObjectId;
+
+import com.mongodb.starter.exceptions.ValidationException;
+
+import lombok.Getter;
+
+// Posición (date, _id) de la última valoración devuelta, codificada como token opaco.
+// RatingValidator exige ambos al escribir, pero las valoraciones anteriores pueden tener date nula
+// o un _id que no es ObjectId: el cursor los guarda tal cual (ver RatingRepositoryCustomImpl.after)
+@Getter
+public final class RatingCursor {
+
+    private static final String SEPARATOR = "|";
+    // Prefijo de los _id heredados que no son ObjectId; un ObjectId va en hexadecimal sin prefijo
+    private static final String LEGACY_ID = "s:";
+
+    // null en valoraciones heredadas sin fecha
+    private final LocalDateTime date;
+    // ObjectId, o String en valoraciones heredadas
+    private final Object id;
+
+    private RatingCursor(LocalDateTime date, Object id) {
+        this.date = date;
+        this.id = id;
+    }
+
+    public static RatingCursor after(Rating rating) {
+        String id = rating.getId();
+        return new RatingCursor(rating.getDate(), ObjectId.isValid(id) ? new ObjectId(id) : id);
+    }
+
+    public String encode() {
+        String raw = (date == null ? "" : date.toString()) + SEPARATOR
+                + (id instanceof ObjectId objectId ? objectId.toHexString() : LEGACY_ID + id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Un token que no se puede decodificar es un error del cliente (400), no del servidor
+    public static RatingCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            // La fecha nunca contiene el separador; un _id heredado sí puede
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new ValidationException("Invalid page cursor: " + token);
+            }
+            String date = raw.substring(0, separator);
+            String id = raw.substring(separator + 1);
+            if (id.startsWith(LEGACY_ID) && id.length() > LEGACY_ID.length()) {
+                return new RatingCursor(date.isEmpty() ? null : LocalDateTime.parse(date), id.substring(LEGACY_ID.length()));
+            }
+            return new RatingCursor(date.isEmpty() ? null : LocalDateTime.parse(date), new ObjectId(id));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new ValidationException("Invalid page cursor: " + token);
+        }
+    }
+
+}
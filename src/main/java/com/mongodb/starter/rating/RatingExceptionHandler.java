@@ -0,0 +1,45 @@
+package com.mongodb.starter.rating;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import com.mongodb.starter.exceptions.ValidationException;
+import com.mongodb.starter.util.MessageResponse;
+
+// Respuestas de error de la API de valoraciones que necesitan cabeceras; vale para el modo servlet y el reactivo
+@RestControllerAdvice(assignableTypes = {RatingController.class, ReactiveRatingController.class})
+public class RatingExceptionHandler {
+
+    @ExceptionHandler(RatingService.ThrottlingException.class)
+    public ResponseEntity<MessageResponse> throttled(RatingService.ThrottlingException e) {
+        ThrottleDecision decision = e.getDecision();
+        long retryAfterMillis = decision == null ? TimeUnit.SECONDS.toMillis(1) : decision.retryAfterMillis();
+        // Retry-After va en segundos enteros: se redondea hacia arriba para no invitar a reintentar antes de tiempo
+        long retryAfterSeconds = Math.max(1, (retryAfterMillis + 999) / 1000);
+        // El nivel que rechazó no tiene ni un token entero: es el mínimo que RatingThrottler.remaining daría ahora
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .headers(RatingController.rateLimitHeaders(0))
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds))
+                .body(new MessageResponse(e.getMessage()));
+    }
+
+    // Datos de entrada inválidos, incluido un cursor de página que no se puede decodificar
+    @ExceptionHandler(ValidationException.class)
+    public ResponseEntity<MessageResponse> invalid(ValidationException e) {
+        return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+    }
+
+    // Conflictos de escritura persistentes en un curso muy activo: no es un error del servidor, se puede reintentar
+    @ExceptionHandler(RatingService.ConcurrentWriteException.class)
+    public ResponseEntity<MessageResponse> conflicted(RatingService.ConcurrentWriteException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new MessageResponse(e.getMessage()));
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.mongodb.starter.rating;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.mongodb.starter.security.JwtProperties;
+import com.mongodb.starter.student.UserService;
+
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+
+// Importación masiva para administradores: el cuerpo NDJSON se lee en streaming, sin cargarlo entero en memoria
+@RestController
+@RequestMapping("/api/v1/ratings/")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Tag(name = "Ratings", description = "The ratings management API")
+public class RatingImportController {
+
+    private static final String ADMIN_ROLE = "admin";
+
+    private final RatingImportService ratingImportService;
+    private final RatingConfig ratingConfig;
+    private final UserService userService;
+    private final JwtProperties jwtProperties;
+
+    public RatingImportController(RatingImportService ratingImportService, RatingConfig ratingConfig, UserService userService,
+                                  JwtProperties jwtProperties) {
+        this.ratingImportService = ratingImportService;
+        this.ratingConfig = ratingConfig;
+        this.userService = userService;
+        this.jwtProperties = jwtProperties;
+    }
+
+    @PostMapping(value = "import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<RatingImportReport> importRatings(@RequestHeader("Authorization") String token,
+                                                            HttpServletRequest request) throws IOException {
+        if (!ratingConfig.isEnabled()) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+
+        // Sin verificar la firma cualquiera puede poner el sub de un administrador en el token
+        token = token.trim();
+        if (!jwtProperties.isEnabled() || !userService.isVerified(token)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        String userId = userService.extractUserId(token);
+        if (!ADMIN_ROLE.equalsIgnoreCase(userService.getUserRoleById(userId, token))) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+
+        try (InputStream body = request.getInputStream()) {
+            return ResponseEntity.ok(ratingImportService.importRatings(body));
+        }
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.mongodb.starter.rating;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+
+// Resultado de una importación masiva: totales y errores por línea del fichero NDJSON
+@Getter
+public class RatingImportReport {
+
+    private long received;
+    private long inserted;
+    private long failed;
+    private int courses;
+    // Solo los primeros errores (feature.rating.import-max-reported-errors); failed cuenta todos
+    private final List<RowError> errors = new ArrayList<>();
+
+    void rowReceived() {
+        received++;
+    }
+
+    void rowsInserted(long count) {
+        inserted += count;
+    }
+
+    void rowFailed(long line, String message, int maxReportedErrors) {
+        failed++;
+        if (errors.size() < maxReportedErrors) {
+            errors.add(new RowError(line, message));
+        }
+    }
+
+    void setCourses(int courses) {
+        this.courses = courses;
+    }
+
+    @Getter
+    public static class RowError {
+        private final long line;
+        private final String message;
+
+        public RowError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+    }
+
+}
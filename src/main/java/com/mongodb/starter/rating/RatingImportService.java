@@ -0,0 +1,163 @@
+package com.mongodb.starter.rating;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.validation.FieldError;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+
+/*
+ * Importación masiva de valoraciones (migraciones desde otro LMS). Cada línea NDJSON se valida con RatingValidator
+ * y las válidas se insertan en lotes bulkWrite no ordenados: un duplicado o un documento rechazado no detiene el lote.
+ * No pasa por el throttler, ni por el servicio de estudiantes (username viene en cada línea), ni actualiza el agregado
+ * fila a fila: al terminar se recalcula una vez el agregado de cada curso afectado y se marca en el outbox.
+ * RatingValidator exige date e _id ObjectId si la línea lo trae; sin date se usa la fecha de la importación.
+ */
+@Service
+public class RatingImportService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RatingImportService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final RatingValidator ratingValidator;
+    private final RatingConfig ratingConfig;
+    private final CourseRatingAggregator courseRatingAggregator;
+    private final CourseRatingOutbox courseRatingOutbox;
+    private final RatingCache ratingCache;
+
+    public RatingImportService(MongoTemplate mongoTemplate, ObjectMapper objectMapper, RatingValidator ratingValidator,
+                               RatingConfig ratingConfig, CourseRatingAggregator courseRatingAggregator,
+                               CourseRatingOutbox courseRatingOutbox, RatingCache ratingCache) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.ratingValidator = ratingValidator;
+        this.ratingConfig = ratingConfig;
+        this.courseRatingAggregator = courseRatingAggregator;
+        this.courseRatingOutbox = courseRatingOutbox;
+        this.ratingCache = ratingCache;
+    }
+
+    public RatingImportReport importRatings(InputStream ndjson) {
+        RatingImportReport report = new RatingImportReport();
+        Set<String> courses = new LinkedHashSet<>();
+        int batchSize = Math.max(1, ratingConfig.getImportBatchSize());
+        List<Rating> batch = new ArrayList<>(batchSize);
+        List<Long> batchLines = new ArrayList<>(batchSize);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(ndjson, StandardCharsets.UTF_8))) {
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                report.rowReceived();
+
+                Rating rating = parse(line, lineNumber, report);
+                if (rating == null) {
+                    continue;
+                }
+                batch.add(rating);
+                batchLines.add(lineNumber);
+                if (batch.size() == batchSize) {
+                    insert(batch, batchLines, report, courses);
+                    batch = new ArrayList<>(batchSize);
+                    batchLines = new ArrayList<>(batchSize);
+                }
+            }
+            insert(batch, batchLines, report, courses);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            // También si la importación se corta a medias: lo ya insertado debe reflejarse en la media
+            refreshCourses(courses);
+            report.setCourses(courses.size());
+        }
+
+        LOGGER.info("Imported {} of {} ratings into {} courses ({} failed)",
+                report.getInserted(), report.getReceived(), report.getCourses(), report.getFailed());
+        return report;
+    }
+
+    // null si la línea no es una valoración válida; el error queda en el informe
+    private Rating parse(String line, long lineNumber, RatingImportReport report) {
+        Rating rating;
+        try {
+            rating = objectMapper.readValue(line, Rating.class);
+        } catch (JsonProcessingException e) {
+            report.rowFailed(lineNumber, "Malformed JSON: " + e.getOriginalMessage(), ratingConfig.getImportMaxReportedErrors());
+            return null;
+        }
+
+        Errors errors = new BeanPropertyBindingResult(rating, "rating");
+        ratingValidator.validate(rating, errors);
+        if (errors.hasErrors()) {
+            StringBuilder message = new StringBuilder();
+            for (FieldError error : errors.getFieldErrors()) {
+                if (message.length() > 0) {
+                    message.append("; ");
+                }
+                message.append(error.getField()).append(": ").append(error.getCode());
+            }
+            report.rowFailed(lineNumber, message.toString(), ratingConfig.getImportMaxReportedErrors());
+            return null;
+        }
+        return rating;
+    }
+
+    private void insert(List<Rating> batch, List<Long> batchLines, RatingImportReport report, Set<String> courses) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        batch.forEach(rating -> courses.add(rating.getCourseId()));
+        try {
+            BulkWriteResult result = mongoTemplate.bulkOps(BulkMode.UNORDERED, Rating.class).insert(batch).execute();
+            report.rowsInserted(result.getInsertedCount());
+        } catch (BulkOperationException e) {
+            // En modo no ordenado Mongo intenta todas las filas y devuelve el índice de cada una que falló
+            report.rowsInserted(e.getResult().getInsertedCount());
+            for (BulkWriteError error : e.getErrors()) {
+                report.rowFailed(batchLines.get(error.getIndex()), error.getMessage(), ratingConfig.getImportMaxReportedErrors());
+            }
+        } finally {
+            // Un id traído en la línea pudo consultarse antes y estar cacheado como inexistente (404)
+            batch.forEach(rating -> ratingCache.evictRating(rating.getId()));
+        }
+    }
+
+    // La API puede seguir escribiendo: rebuild solo guarda el recuento si el curso no cambió mientras se contaba
+    private void refreshCourses(Set<String> courses) {
+        for (String courseId : courses) {
+            try {
+                courseRatingAggregator.rebuild(courseId);
+            } catch (OptimisticLockingFailureException e) {
+                LOGGER.error("Aggregate of course {} not rebuilt after import, run the aggregate rebuild: {}", courseId, e.getMessage());
+            }
+            courseRatingOutbox.courseChanged(courseId);
+        }
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.mongodb.starter.rating;
+
+import java.util.List;
+
+import lombok.Getter;
+
+@Getter
+public class RatingPage {
+
+    private final List<Rating> ratings;
+    // null cuando no quedan más páginas
+    private final String next;
+
+    public RatingPage(List<Rating> ratings, String next) {
+        this.ratings = ratings;
+        this.next = next;
+    }
+
+    // ratings trae un elemento de más (pageSize + 1) para saber si existe una página siguiente
+    static RatingPage of(List<Rating> ratings, int pageSize) {
+        if (ratings.size() <= pageSize) {
+            return new RatingPage(ratings, null);
+        }
+        List<Rating> page = ratings.subList(0, pageSize);
+        return new RatingPage(page, RatingCursor.after(page.get(pageSize - 1)).encode());
+    }
+
+}
@@ -1,7 +1,10 @@
 package com.mongodb.starter.rating;
 
 import java.util.List;
+import java.util.stream.Stream;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -9,9 +12,20 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface RatingRepository extends MongoRepository<Rating,String> {
-    
+public interface RatingRepository extends MongoRepository<Rating,String>, RatingRepositoryCustom {
+
+    int EXPORT_BATCH_SIZE = 500;
+
     @Query("{ 'courseId': ?0 }")
     List<Rating> findAllRatingsByCourse(@Param("courseId") String courseId);
-    
+
+    // Cursor de Mongo para exportaciones: se lee por lotes sin materializar la lista
+    @Meta(cursorBatchSize = EXPORT_BATCH_SIZE)
+    @Query("{ 'courseId': ?0 }")
+    Stream<Rating> streamAllRatingsByCourse(@Param("courseId") String courseId);
+
+    // Paginación por cursor: más recientes primero, desempate por _id. Las páginas siguientes, en RatingRepositoryCustom
+    @Query(value = "{ 'courseId': ?0 }", sort = "{ 'date': -1, '_id': -1 }")
+    List<Rating> findFirstRatingsPageByCourse(@Param("courseId") String courseId, Pageable pageable);
+
 }
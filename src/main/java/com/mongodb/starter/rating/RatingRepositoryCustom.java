@@ -0,0 +1,18 @@
+package com.mongodb.starter.rating;
+
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+
+public interface RatingRepositoryCustom {
+
+    // Aplica los cambios solo si la valoración pertenece al usuario y al curso; devuelve el documento previo o null
+    Rating updateOwnedRating(String id, String userId, String courseId, String description, Integer rating);
+
+    // Borra la valoración solo si pertenece al usuario y al curso; devuelve el documento borrado o null
+    Rating deleteOwnedRating(String id, String userId, String courseId);
+
+    // Paginación por cursor: las valoraciones que van detrás de cursor, más recientes primero
+    List<Rating> findRatingsPageByCourseAfter(String courseId, RatingCursor cursor, Pageable pageable);
+
+}
@@ -0,0 +1,87 @@
+package com.mongodb.starter.rating;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.List;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+
+/*
+ * Escrituras condicionadas por {_id, userId, courseId} en una sola operación de Mongo,
+ * sin leer antes el documento para comprobar el propietario.
+ */
+class RatingRepositoryCustomImpl implements RatingRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    RatingRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Rating updateOwnedRating(String id, String userId, String courseId, String description, Integer rating) {
+        Update update = changes(description, rating);
+        if (update.getUpdateObject().isEmpty()) {
+            return mongoTemplate.findOne(ownedBy(id, userId, courseId), Rating.class);
+        }
+        return mongoTemplate.findAndModify(ownedBy(id, userId, courseId), update,
+                FindAndModifyOptions.options().returnNew(false), Rating.class);
+    }
+
+    @Override
+    public Rating deleteOwnedRating(String id, String userId, String courseId) {
+        return mongoTemplate.findAndRemove(ownedBy(id, userId, courseId), Rating.class);
+    }
+
+    @Override
+    public List<Rating> findRatingsPageByCourseAfter(String courseId, RatingCursor cursor, Pageable pageable) {
+        return mongoTemplate.find(after(courseId, cursor).with(pageable), Rating.class);
+    }
+
+    static Update changes(String description, Integer rating) {
+        Update update = new Update();
+        if (description != null) {
+            update.set("description", description);
+        }
+        if (rating != null) {
+            update.set("rating", rating);
+        }
+        return update;
+    }
+
+    // courseId es el de la ruta, con el que se aplicó el throttling: debe ser también el guardado
+    static Query ownedBy(String id, String userId, String courseId) {
+        return query(where("id").is(id).and("userId").is(userId).and("courseId").is(courseId));
+    }
+
+    /*
+     * Valoraciones detrás del cursor en el orden {date: -1, _id: -1}. Mongo ordena una date nula por debajo de
+     * cualquier fecha y un _id String por debajo de cualquier ObjectId, pero $lt solo compara valores del mismo
+     * tipo: las valoraciones heredadas de tipo menor se añaden aparte para no saltárselas.
+     */
+    static Query after(String courseId, RatingCursor cursor) {
+        Criteria sameDate = new Criteria().andOperator(where("date").is(cursor.getDate()), idBefore(cursor.getId()));
+        Criteria position = cursor.getDate() == null
+                ? sameDate
+                : new Criteria().orOperator(where("date").lt(cursor.getDate()), where("date").is(null), sameDate);
+        return query(where("courseId").is(courseId).andOperator(position))
+                .with(Sort.by(Sort.Direction.DESC, "date", "id"));
+    }
+
+    private static Criteria idBefore(Object id) {
+        if (id instanceof ObjectId) {
+            return new Criteria().orOperator(where("id").lt(id), where("id").type(JsonSchemaObject.Type.stringType()));
+        }
+        return where("id").lt(id);
+    }
+
+}
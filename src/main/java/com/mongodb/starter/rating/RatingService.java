@@ -1,13 +1,20 @@
 package com.mongodb.starter.rating;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
-import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
 
-import org.springframework.transaction.annotation.Transactional;
+import com.mongodb.starter.exceptions.BadRequestException;
 import com.mongodb.starter.exceptions.ResourceNotFoundException;
 import org.springframework.stereotype.Service;
 
@@ -17,91 +24,265 @@ public class RatingService {
     private RatingRepository ratingRepository;
     private final RatingConfig ratingConfig;
     private final RatingThrottler ratingThrottler;
+    private final CourseRatingAggregator courseRatingAggregator;
+    private final RatingCache ratingCache;
+    private final CourseRatingOutbox courseRatingOutbox;
+    private final RatingTransactions ratingTransactions;
 
     @Autowired
-    public RatingService(RatingRepository ratingRepository, RatingConfig ratingConfig, RatingThrottler ratingThrottler) {
+    public RatingService(RatingRepository ratingRepository, RatingConfig ratingConfig, RatingThrottler ratingThrottler,
+                         CourseRatingAggregator courseRatingAggregator, RatingCache ratingCache,
+                         CourseRatingOutbox courseRatingOutbox, RatingTransactions ratingTransactions) {
         this.ratingRepository = ratingRepository;
         this.ratingConfig = ratingConfig;
         this.ratingThrottler = ratingThrottler;
+        this.courseRatingAggregator = courseRatingAggregator;
+        this.ratingCache = ratingCache;
+        this.courseRatingOutbox = courseRatingOutbox;
+        this.ratingTransactions = ratingTransactions;
     }
 
-    @Transactional(readOnly = true)
     public Collection<Rating> findAll() {
         return (List<Rating>) ratingRepository.findAll();
     }
 
-    @Transactional(readOnly = true)
     public Rating findRatingById(String id) throws DataAccessException {
-        return ratingRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Rating", "ID", id));
+        Rating rating = ratingCache.rating(id, () -> ratingRepository.findById(id).orElse(null));
+        if (rating == null) {
+            throw new ResourceNotFoundException("Rating", "ID", id);
+        }
+        return rating;
     }
 
-    @Transactional(readOnly = true)
     public List<Rating> findAllRatingsByCourse(String courseId) throws DataAccessException {
         return ratingRepository.findAllRatingsByCourse(courseId);
     }
 
-    @Transactional
+    // El llamante debe cerrar el Stream para liberar el cursor
+    public Stream<Rating> streamAllRatingsByCourse(String courseId) throws DataAccessException {
+        return ratingRepository.streamAllRatingsByCourse(courseId);
+    }
+
+    public RatingPage findRatingsPageByCourse(String courseId, Integer limit, String next) throws DataAccessException {
+        int pageSize = pageSize(limit);
+
+        // Se pide un elemento de más para saber si existe una página siguiente
+        List<Rating> ratings;
+        if (next == null || next.isBlank()) {
+            ratings = ratingRepository.findFirstRatingsPageByCourse(courseId, PageRequest.of(0, pageSize + 1));
+        } else {
+            RatingCursor cursor = RatingCursor.decode(next);
+            ratings = ratingRepository.findRatingsPageByCourseAfter(courseId, cursor, PageRequest.of(0, pageSize + 1));
+        }
+
+        return RatingPage.of(ratings, pageSize);
+    }
+
+    // Primera página del curso ya serializada para la versión leída por el llamante; encoder solo se usa si no está en caché
+    public SerializedRatingPage findSerializedHeadPage(String courseId, Integer limit, long version,
+                                                       Function<RatingPage, SerializedRatingPage> encoder) {
+        int pageSize = pageSize(limit);
+        return ratingCache.serializedHeadPage(courseId, pageSize, version,
+                () -> encoder.apply(findRatingsPageByCourse(courseId, pageSize, null)));
+    }
+
+    private int pageSize(Integer limit) {
+        return pageSize(ratingConfig, limit);
+    }
+
+    static int pageSize(RatingConfig ratingConfig, Integer limit) {
+        int max = ratingConfig.getMaxPageSize();
+        if (limit == null) {
+            return Math.min(ratingConfig.getDefaultPageSize(), max);
+        }
+        if (limit < 1) {
+            throw new BadRequestException("limit must be greater than 0");
+        }
+        return Math.min(limit, max);
+    }
+
+    // Versión y fecha del último cambio del curso: una lectura por _id, sin tocar las valoraciones
+    public CourseRatingAggregate findCourseAggregate(String courseId) {
+        return courseRatingAggregator.find(courseId);
+    }
+
+    // Resumen (count, media, histograma) de varios cursos con una sola lectura de CourseRatingAggregate
+    public List<CourseRatingAggregate> findCourseSummaries(List<String> courseIds) {
+        List<String> ids = summaryCourseIds(ratingConfig, courseIds);
+        return summaries(ids, courseRatingAggregator.findAll(ids));
+    }
+
+    // Ids sin repetir y en el orden pedido; la lista está acotada por maxSummaryCourses
+    static List<String> summaryCourseIds(RatingConfig ratingConfig, List<String> courseIds) {
+        Set<String> ids = new LinkedHashSet<>();
+        if (courseIds != null) {
+            for (String courseId : courseIds) {
+                if (courseId != null && !courseId.isBlank()) {
+                    ids.add(courseId.trim());
+                }
+            }
+        }
+        if (ids.isEmpty()) {
+            throw new BadRequestException("courseIds is required");
+        }
+        if (ids.size() > ratingConfig.getMaxSummaryCourses()) {
+            throw new BadRequestException("courseIds must contain at most " + ratingConfig.getMaxSummaryCourses() + " courses");
+        }
+        return new ArrayList<>(ids);
+    }
+
+    // Un resumen por curso pedido; los cursos sin valoraciones salen con count 0
+    static List<CourseRatingAggregate> summaries(List<String> courseIds, Map<String, CourseRatingAggregate> aggregates) {
+        return courseIds.stream()
+                .map(courseId -> aggregates.getOrDefault(courseId, new CourseRatingAggregate(courseId)))
+                .toList();
+    }
+
     public Rating saveRating(Rating rating) {
         if (!ratingConfig.isEnabled()) {
             throw new FeatureDisabledException("Rating feature is currently disabled");
         }
 
-        if (!ratingThrottler.allowRequest(rating.getUserId())) {
-            throw new ThrottlingException("Rate limit exceeded for user: " + rating.getUserId());
-        }
+        // El throttling queda fuera de la transacción: un reintento no consume otro token
+        checkAllowed(RatingConfig.Operation.CREATE, rating.getUserId(), rating.getCourseId());
 
-        return ratingRepository.save(rating);
+        Rating saved = ratingTransactions.execute(() -> {
+            Rating inserted = ratingRepository.save(rating);
+            courseRatingOutbox.courseChanged(inserted.getCourseId());
+            // El agregado es el único documento compartido por los escritores del curso: se toca el último, justo antes del commit
+            courseRatingAggregator.ratingAdded(inserted.getCourseId(), inserted.getRating());
+            return inserted;
+        });
+        // Después del commit: invalidar antes dejaría que una lectura concurrente volviera a cachear el estado anterior
+        ratingCache.evict(saved);
+        return saved;
     }
 
-    @Transactional
-    public Rating updateRating(Rating rating, String id) {
+    // Actualización en un único findAndModify filtrado por {_id, userId, courseId}: el curso limitado es el guardado
+    public Rating updateRating(Rating rating, String id, String userId, String courseId) {
         if (!ratingConfig.isEnabled()) {
             throw new FeatureDisabledException("Rating feature is currently disabled");
         }
 
-        Rating toUpdate = findRatingById(id);
+        checkAllowed(RatingConfig.Operation.UPDATE, userId, courseId);
 
-        if (!ratingThrottler.allowRequest(rating.getUserId())) {
-            throw new ThrottlingException("Rate limit exceeded for user: " + rating.getUserId());
-        }
+        Rating updated = ratingTransactions.execute(() -> {
+            Rating previous = ratingRepository.updateOwnedRating(id, userId, courseId, rating.getDescription(), rating.getRating());
+            if (previous == null) {
+                throw notFoundOrNotOwner(id, userId, courseId);
+            }
 
-        BeanUtils.copyProperties(rating, toUpdate, "id");
-        return ratingRepository.save(toUpdate);
+            Integer previousStars = previous.getRating();
+            if (rating.getDescription() != null) {
+                previous.setDescription(rating.getDescription());
+            }
+            if (rating.getRating() != null) {
+                previous.setRating(rating.getRating());
+            }
+            if (!Objects.equals(previousStars, previous.getRating())) {
+                courseRatingOutbox.courseChanged(previous.getCourseId());
+            }
+            courseRatingAggregator.ratingChanged(previous.getCourseId(), previousStars, previous.getRating());
+            return previous;
+        });
+        ratingCache.evict(updated);
+        return updated;
     }
 
-    @Transactional
-    public void deleteRating(String id) throws DataAccessException {
+    // Borrado en un único findAndRemove filtrado por {_id, userId, courseId}; devuelve la valoración borrada
+    public Rating deleteRating(String id, String userId, String courseId) throws DataAccessException {
         if (!ratingConfig.isEnabled()) {
             throw new FeatureDisabledException("Rating feature is currently disabled");
         }
-        
-        Rating toDelete = findRatingById(id);
-        
-        if (!ratingThrottler.allowRequest(toDelete.getUserId())) {
-            throw new ThrottlingException("Rate limit exceeded for user: " + toDelete.getUserId());
+
+        checkAllowed(RatingConfig.Operation.DELETE, userId, courseId);
+
+        Rating deleted = ratingTransactions.execute(() -> {
+            Rating removed = ratingRepository.deleteOwnedRating(id, userId, courseId);
+            if (removed == null) {
+                throw notFoundOrNotOwner(id, userId, courseId);
+            }
+            courseRatingOutbox.courseChanged(removed.getCourseId());
+            courseRatingAggregator.ratingRemoved(removed.getCourseId(), removed.getRating());
+            return removed;
+        });
+        ratingCache.evict(deleted);
+        return deleted;
+    }
+
+    // Para X-RateLimit-Remaining tras una escritura admitida; solo lee los buckets en memoria
+    public long remainingRequests(RatingConfig.Operation operation, String userId, String courseId) {
+        return ratingThrottler.remaining(operation, userId, courseId);
+    }
+
+    private void checkAllowed(RatingConfig.Operation operation, String userId, String courseId) {
+        ThrottleDecision decision = ratingThrottler.check(operation, userId, courseId);
+        if (!decision.allowed()) {
+            throw ThrottlingException.of(decision, userId, courseId);
+        }
+    }
+
+    // Solo se consulta en el camino de error: de otro usuario -> 403; no existe o es de otro curso -> 404
+    private RuntimeException notFoundOrNotOwner(String id, String userId, String courseId) {
+        return notFoundOrNotOwner(ratingRepository.findById(id).orElse(null), id, userId, courseId);
+    }
+
+    static RuntimeException notFoundOrNotOwner(Rating stored, String id, String userId, String courseId) {
+        if (stored != null && Objects.equals(stored.getCourseId(), courseId) && !Objects.equals(stored.getUserId(), userId)) {
+            return new RatingOwnershipException("Rating " + id + " does not belong to user: " + userId);
         }
-        
-        ratingRepository.delete(toDelete);
+        return new ResourceNotFoundException("Rating", "ID", id);
     }
 
-	@Transactional(readOnly =true)
 	public Double ratingMean(String courseId){
-		List<Integer> ratings = findAllRatingsByCourse(courseId).stream().map(x -> x.getRating()).toList();
-		Double mean = ratings.stream().mapToDouble(Integer:: doubleValue).average().orElse(0.0);
-		return mean;
+		return courseRatingAggregator.mean(courseId);
+	}
+
+	// Excepción cuando la transacción sigue en conflicto tras agotar los reintentos: el cliente puede repetir (503)
+	public static class ConcurrentWriteException extends RuntimeException {
+		public ConcurrentWriteException(String message, Throwable cause) {
+			super(message, cause);
+		}
 	}
 
 	// Excepción para feature toggle
-	public class FeatureDisabledException extends RuntimeException {
+	public static class FeatureDisabledException extends RuntimeException {
 		public FeatureDisabledException(String message) {
 			super(message);
 		}
 	}
 
-	// Excepción para throttling
-	public class ThrottlingException extends RuntimeException {
+	// Excepción cuando la valoración existe pero pertenece a otro usuario
+	public static class RatingOwnershipException extends RuntimeException {
+		public RatingOwnershipException(String message) {
+			super(message);
+		}
+	}
+
+	// Excepción para throttling; decision indica el nivel que rechazó y cuándo reintentar
+	public static class ThrottlingException extends RuntimeException {
+		private final ThrottleDecision decision;
+
 		public ThrottlingException(String message) {
+			this(message, null);
+		}
+
+		public ThrottlingException(String message, ThrottleDecision decision) {
 			super(message);
+			this.decision = decision;
+		}
+
+		static ThrottlingException of(ThrottleDecision decision, String userId, String courseId) {
+			String message = switch (decision.scope()) {
+				case ThrottleDecision.COURSE -> "Rate limit exceeded for course: " + courseId;
+				case ThrottleDecision.GLOBAL -> "Rate limit exceeded";
+				default -> "Rate limit exceeded for user: " + userId;
+			};
+			return new ThrottlingException(message, decision);
+		}
+
+		public ThrottleDecision getDecision() {
+			return decision;
 		}
 	}
 }
@@ -0,0 +1,43 @@
+package com.mongodb.starter.rating;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+// Medias de varios cursos para las páginas de catálogo: ?courseIds=a,b,c en lugar de un listado completo por curso
+@RestController
+@RequestMapping("/api/v1/ratings/")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Tag(name = "Ratings", description = "The ratings management API")
+public class RatingSummaryController {
+
+    private final RatingService ratingService;
+    private final RatingConfig ratingConfig;
+
+    public RatingSummaryController(RatingService ratingService, RatingConfig ratingConfig) {
+        this.ratingService = ratingService;
+        this.ratingConfig = ratingConfig;
+    }
+
+    @GetMapping("summary")
+    public ResponseEntity<List<CourseRatingAggregate>> summary(@RequestParam(value = "courseIds", required = false) List<String> courseIds) {
+        return ResponseEntity.ok()
+                .cacheControl(summaryCacheControl(ratingConfig))
+                .body(ratingService.findCourseSummaries(courseIds));
+    }
+
+    // Los resúmenes no dependen del usuario: se pueden cachear en proxies compartidos
+    static CacheControl summaryCacheControl(RatingConfig ratingConfig) {
+        return CacheControl.maxAge(ratingConfig.getSummaryMaxAgeSeconds(), TimeUnit.SECONDS).cachePublic();
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.mongodb.starter.rating;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// Un contador por clave del throttler y ventana horaria (_id = clave@inicioDeVentana); el índice TTL borra las ventanas pasadas
+@Getter
+@Setter
+@Document(collection = "ratingThrottle")
+public class RatingThrottleCounter {
+
+    @Id
+    private String id;
+    private String key;
+    // Tokens repartidos en la ventana, incluidos los que siguen reservados en algún pod
+    private long used;
+    @Indexed(name = "expiresAt_ttl", expireAfterSeconds = 0)
+    private Instant expiresAt;
+
+}
@@ -0,0 +1,63 @@
+package com.mongodb.starter.rating;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/*
+ * Contadores compartidos del modo distribuido (colección ratingThrottle). Cada reserva es un único
+ * findAndModify con $inc y upsert, atómico también en un Mongo standalone, sin transacciones.
+ */
+@Component
+public class RatingThrottleStore {
+
+    // Margen antes de que el TTL borre el contador de una ventana ya cerrada
+    private static final long EXPIRY_GRACE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private final MongoTemplate mongoTemplate;
+
+    public RatingThrottleStore(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /*
+     * Reserva hasta requested tokens de la clave (usuario, curso o global) en la ventana que empieza en windowStart
+     * y, en la misma operación, devuelve los returned tokens sin gastar de la reserva anterior del pod.
+     * Devuelve los concedidos (0 si está agotada); la parte no concedida se descuenta de nuevo del contador.
+     */
+    public long lease(String key, long windowStart, long windowMillis, long requested, long returned, long limit) {
+        String id = key + "@" + windowStart;
+        Update update = new Update()
+                .inc("used", requested - returned)
+                .setOnInsert("key", key)
+                .setOnInsert("expiresAt", Instant.ofEpochMilli(windowStart + windowMillis + EXPIRY_GRACE_MILLIS));
+        RatingThrottleCounter counter = mongoTemplate.findAndModify(query(where("_id").is(id)), update,
+                FindAndModifyOptions.options().upsert(true).returnNew(true), RatingThrottleCounter.class);
+        long granted = granted(counter == null ? requested : counter.getUsed(), requested, limit);
+        if (granted < requested) {
+            mongoTemplate.updateFirst(query(where("_id").is(id)), new Update().inc("used", granted - requested), RatingThrottleCounter.class);
+        }
+        return granted;
+    }
+
+    // Devuelve al contador de la ventana los tokens de una reserva caducada que el pod no llegó a usar
+    public void release(String key, long windowStart, long tokens) {
+        mongoTemplate.updateFirst(query(where("_id").is(key + "@" + windowStart)), new Update().inc("used", -tokens),
+                RatingThrottleCounter.class);
+    }
+
+    // El $inc es incondicional: si se pasa del límite, solo se concede lo que quedaba antes de esta reserva.
+    // usedAfter - requested es lo usado por los demás: los tokens devueltos en la misma operación ya no cuentan
+    static long granted(long usedAfter, long requested, long limit) {
+        long available = limit - (usedAfter - requested);
+        return Math.max(0, Math.min(requested, available));
+    }
+
+}
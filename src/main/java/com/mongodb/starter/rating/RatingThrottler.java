@@ -1,43 +1,341 @@
 package com.mongodb.starter.rating;
 
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Component;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+/*
+ * Un bucket por usuario. La caducidad de los inactivos y el límite de tamaño los gestiona Caffeine
+ * (cola de acceso y W-TinyLFU, O(1) amortizado por petición) y el Scheduler del sistema los retira
+ * en segundo plano, sin recorrer el mapa en cada allowRequest.
+ *
+ * Cada operación puede combinar buckets por usuario, por curso y global (RatingConfig.policies).
+ *
+ * En modo distributed, lo que deja pasar cada bucket local se descuenta además de un contador por clave
+ * y hora común a todas las réplicas. Cada pod reserva los tokens en lotes de throttleLeaseSize, así que
+ * la mayoría de peticiones no llegan a Mongo; si Mongo falla se aplica solo el límite local. Los tokens
+ * que una reserva no llega a usar antes de caducar (throttleLeaseMs) se devuelven al contador.
+ */
 @Component
 public class RatingThrottler {
-    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private static final Logger LOGGER = LoggerFactory.getLogger(RatingThrottler.class);
+    private static final long WINDOW_MILLIS = TimeUnit.HOURS.toMillis(1);
+    // Con Mongo caído el fallo se repite en cada renovación: un WARN como mucho por intervalo
+    private static final long STORE_WARNING_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final Cache<String, TokenBucket> buckets;
+    private final Cache<String, Lease> leases;
     private final RatingConfig config;
+    private final RatingThrottleStore store;
+    private final AtomicLong lastStoreWarning = new AtomicLong(-STORE_WARNING_INTERVAL_MILLIS);
+    private final AtomicLong suppressedStoreWarnings = new AtomicLong();
 
     public RatingThrottler(RatingConfig config) {
+        this(config, null, Ticker.systemTicker());
+    }
+
+    @Autowired
+    public RatingThrottler(RatingConfig config, RatingThrottleStore store) {
+        this(config, store, Ticker.systemTicker());
+    }
+
+    RatingThrottler(RatingConfig config, Ticker ticker) {
+        this(config, null, ticker);
+    }
+
+    RatingThrottler(RatingConfig config, RatingThrottleStore store, Ticker ticker) {
         this.config = config;
+        this.store = store;
+        // Si se alcanza el máximo se descartan los buckets menos usados: ese usuario vuelve a empezar con el burst completo
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(config.getThrottleMaxBuckets())
+                .expireAfterAccess(config.getThrottleIdleMs(), TimeUnit.MILLISECONDS)
+                .scheduler(Scheduler.systemScheduler())
+                .ticker(ticker)
+                .build();
+        // Una reserva sin peticiones durante throttleLeaseMs, o desalojada por tamaño, devuelve sus tokens a Mongo
+        this.leases = Caffeine.newBuilder()
+                .maximumSize(config.getThrottleMaxBuckets())
+                .expireAfterAccess(Math.max(1, config.getThrottleLeaseMs()), TimeUnit.MILLISECONDS)
+                .scheduler(Scheduler.systemScheduler())
+                .ticker(ticker)
+                .<String, Lease>removalListener((key, lease, cause) -> {
+                    if (key != null && lease != null && cause.wasEvicted()) {
+                        release(key, lease, System.currentTimeMillis());
+                    }
+                })
+                .build();
+    }
+
+    public ConcurrentMap<String, TokenBucket> getBuckets() {
+        return buckets.asMap();
     }
 
-    public ConcurrentHashMap<String, TokenBucket> getBuckets() {
-        return buckets;
+    // Número de buckets tras aplicar caducidades y desalojos pendientes
+    long bucketCount() {
+        buckets.cleanUp();
+        return buckets.estimatedSize();
+    }
+
+    // En modo distributed allowRequest puede bloquear mientras reserva tokens en Mongo
+    public boolean isDistributed() {
+        return store != null && config.getThrottleMode() == RatingConfig.ThrottleMode.DISTRIBUTED;
     }
 
     public boolean allowRequest(String userId) {
         return allowRequest(userId, System.currentTimeMillis());
     }
 
+    // Límite por usuario de RatingConfig, común a todas las operaciones
     public boolean allowRequest(String userId, long currentTimeMillis) {
         if (userId == null) {
             return false;
         }
+        return acquire(ThrottleDecision.USER, userId, defaultUserLimit(), currentTimeMillis) == null;
+    }
+
+    public ThrottleDecision check(RatingConfig.Operation operation, String userId, String courseId) {
+        return check(operation, userId, courseId, System.currentTimeMillis());
+    }
+
+    /*
+     * Aplica los niveles de la política de la operación de más a menos específico: un usuario que abusa
+     * se rechaza en su propio bucket sin gastar tokens del curso ni del global. Si un nivel rechaza,
+     * se devuelven los tokens ya consumidos en los anteriores: el del bucket local y, en modo distributed,
+     * el de la reserva del clúster.
+     */
+    public ThrottleDecision check(RatingConfig.Operation operation, String userId, String courseId, long currentTimeMillis) {
+        if (userId == null) {
+            return ThrottleDecision.rejected(ThrottleDecision.USER, 0);
+        }
+        RatingConfig.ThrottlePolicy policy = config.getPolicies().get(operation);
+        String op = operation.name().toLowerCase();
+
+        RatingConfig.Limit userLimit = policy == null ? null : policy.getUser();
+        String userKey = userKey(op, userId, userLimit);
+        ThrottleDecision rejected = acquire(ThrottleDecision.USER, userKey, userLimit == null ? defaultUserLimit() : userLimit,
+                currentTimeMillis);
+        if (rejected != null) {
+            return rejected;
+        }
+
+        String courseKey = null;
+        if (policy != null && policy.getCourse() != null && courseId != null) {
+            courseKey = "course:" + op + ":" + courseId;
+            rejected = acquire(ThrottleDecision.COURSE, courseKey, policy.getCourse(), currentTimeMillis);
+            if (rejected != null) {
+                refund(userKey, currentTimeMillis);
+                return rejected;
+            }
+        }
 
-        TokenBucket bucket = buckets.computeIfAbsent(userId,
-            k -> new TokenBucket(config.getBurstSize(), config.getRequestsPerHour(), currentTimeMillis));
-        
-        cleanOldBuckets(currentTimeMillis);
-        return bucket.tryConsume(currentTimeMillis);
+        if (policy != null && policy.getGlobal() != null) {
+            String globalKey = "global:" + op;
+            rejected = acquire(ThrottleDecision.GLOBAL, globalKey, policy.getGlobal(), currentTimeMillis);
+            if (rejected != null) {
+                refund(userKey, currentTimeMillis);
+                refund(courseKey, currentTimeMillis);
+                return rejected;
+            }
+        }
+        return ThrottleDecision.ALLOWED;
     }
 
-    private void cleanOldBuckets(long currentTimeMillis) {
-        long oneHourAgo = currentTimeMillis - TimeUnit.HOURS.toMillis(1);
-        buckets.entrySet().removeIf(entry -> 
-            entry.getValue().getLastRefillTimestamp() < oneHourAgo);
+    public long remaining(RatingConfig.Operation operation, String userId, String courseId) {
+        return remaining(operation, userId, courseId, System.currentTimeMillis());
     }
-}
 
+    /*
+     * Peticiones que quedan ahora mismo para la operación: el mínimo de tokens enteros entre los niveles
+     * de la política, sin consumir ninguno. Un bucket que aún no existe cuenta con el burst completo.
+     * En modo distributed es el límite de este pod; la reserva del clúster puede agotarse antes.
+     */
+    public long remaining(RatingConfig.Operation operation, String userId, String courseId, long currentTimeMillis) {
+        if (userId == null) {
+            return 0;
+        }
+        RatingConfig.ThrottlePolicy policy = config.getPolicies().get(operation);
+        String op = operation.name().toLowerCase();
+
+        RatingConfig.Limit userLimit = policy == null ? null : policy.getUser();
+        long remaining = available(userKey(op, userId, userLimit), userLimit == null ? defaultUserLimit() : userLimit,
+                currentTimeMillis);
+        if (policy != null && policy.getCourse() != null && courseId != null) {
+            remaining = Math.min(remaining, available("course:" + op + ":" + courseId, policy.getCourse(), currentTimeMillis));
+        }
+        if (policy != null && policy.getGlobal() != null) {
+            remaining = Math.min(remaining, available("global:" + op, policy.getGlobal(), currentTimeMillis));
+        }
+        return remaining;
+    }
+
+    // Sin política propia de usuario la operación comparte el bucket del límite por defecto
+    private static String userKey(String op, String userId, RatingConfig.Limit userLimit) {
+        return userLimit == null ? userId : "user:" + op + ":" + userId;
+    }
+
+    private long available(String key, RatingConfig.Limit limit, long now) {
+        TokenBucket bucket = buckets.getIfPresent(key);
+        return bucket == null ? limit.getBurstSize() : bucket.available(now);
+    }
+
+    // null si se concede; si no, la decisión de rechazo con la espera hasta el siguiente token
+    private ThrottleDecision acquire(String scope, String key, RatingConfig.Limit limit, long now) {
+        TokenBucket bucket = buckets.get(key, k -> new TokenBucket(limit.getBurstSize(), limit.getRequestsPerHour(), now));
+        if (!bucket.tryConsume(now)) {
+            return ThrottleDecision.rejected(scope, bucket.millisUntilAvailable(now));
+        }
+        if (isDistributed() && !allowClusterWide(key, Math.max(limit.getBurstSize(), limit.getRequestsPerHour()), now)) {
+            bucket.refund();
+            // Ventana agotada en el clúster: no hay tokens hasta la siguiente
+            return ThrottleDecision.rejected(scope, WINDOW_MILLIS - Math.floorMod(now, WINDOW_MILLIS));
+        }
+        return null;
+    }
+
+    private void refund(String key, long now) {
+        if (key == null) {
+            return;
+        }
+        TokenBucket bucket = buckets.getIfPresent(key);
+        if (bucket != null) {
+            bucket.refund();
+        }
+        Lease lease = isDistributed() ? leases.getIfPresent(key) : null;
+        if (lease != null) {
+            // El token ya está contado en Mongo: vuelve a la reserva de este pod para la siguiente petición
+            lease.refund(now - Math.floorMod(now, WINDOW_MILLIS));
+        }
+    }
+
+    private RatingConfig.Limit defaultUserLimit() {
+        RatingConfig.Limit limit = new RatingConfig.Limit();
+        limit.setBurstSize(config.getBurstSize());
+        limit.setRequestsPerHour(config.getRequestsPerHour());
+        return limit;
+    }
+
+    private boolean allowClusterWide(String key, long limit, long now) {
+        Lease lease = leases.get(key, k -> new Lease());
+        long window = now - Math.floorMod(now, WINDOW_MILLIS);
+        if (lease.tryAcquire(window, now)) {
+            return true;
+        }
+        if (lease.isExhausted(window)) {
+            return false;
+        }
+        // ReentrantLock y no synchronized: la llamada a Mongo no fija el hilo virtual a su portador
+        lease.lock.lock();
+        try {
+            // Otro hilo puede haber renovado la reserva mientras esperábamos
+            if (lease.tryAcquire(window, now)) {
+                return true;
+            }
+            if (lease.isExhausted(window)) {
+                return false;
+            }
+            // Los tokens sin gastar de la reserva caducada vuelven al contador en la misma llamada
+            long returned = lease.drain(window);
+            long granted;
+            try {
+                granted = store.lease(key, window, WINDOW_MILLIS, Math.max(1, config.getThrottleLeaseSize()), returned, limit);
+            } catch (DataAccessException e) {
+                warnStoreUnavailable(e, now);
+                return true;
+            }
+            if (granted == 0) {
+                // Ventana agotada en todo el clúster: no se vuelve a consultar Mongo hasta la siguiente
+                lease.exhaust(window);
+                return false;
+            }
+            lease.renew(window, now + config.getThrottleLeaseMs(), granted - 1);
+            return true;
+        } finally {
+            lease.lock.unlock();
+        }
+    }
+
+    private void release(String key, Lease lease, long now) {
+        long window = now - Math.floorMod(now, WINDOW_MILLIS);
+        long tokens = lease.drain(window);
+        if (tokens == 0) {
+            return;
+        }
+        try {
+            store.release(key, window, tokens);
+        } catch (DataAccessException e) {
+            warnStoreUnavailable(e, now);
+        }
+    }
+
+    private void warnStoreUnavailable(DataAccessException e, long now) {
+        long last = lastStoreWarning.get();
+        if (now - last >= STORE_WARNING_INTERVAL_MILLIS && lastStoreWarning.compareAndSet(last, now)) {
+            LOGGER.warn("Distributed throttling unavailable, applying local limit only ({} more failures since the last warning): {}",
+                    suppressedStoreWarnings.getAndSet(0), e.getMessage());
+        } else {
+            suppressedStoreWarnings.incrementAndGet();
+            LOGGER.debug("Distributed throttling unavailable: {}", e.getMessage());
+        }
+    }
+
+    long suppressedStoreWarnings() {
+        return suppressedStoreWarnings.get();
+    }
+
+    // Tokens reservados por este pod para un usuario; se consumen sin bloqueo hasta agotarse o caducar
+    static final class Lease {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final AtomicLong remaining = new AtomicLong();
+        private volatile long window = -1;
+        private volatile long validUntil;
+        private volatile long exhaustedWindow = -1;
+
+        boolean tryAcquire(long currentWindow, long now) {
+            if (window != currentWindow || now >= validUntil) {
+                return false;
+            }
+            return remaining.getAndUpdate(tokens -> tokens > 0 ? tokens - 1 : 0) > 0;
+        }
+
+        boolean isExhausted(long currentWindow) {
+            return exhaustedWindow == currentWindow;
+        }
+
+        void exhaust(long currentWindow) {
+            remaining.set(0);
+            exhaustedWindow = currentWindow;
+        }
+
+        // Solo dentro de la misma ventana: el token de una ventana ya cerrada no vale para la nueva
+        void refund(long currentWindow) {
+            if (window == currentWindow) {
+                remaining.incrementAndGet();
+            }
+        }
+
+        // Retira los tokens sin gastar; los de una ventana ya cerrada no hace falta devolverlos
+        long drain(long currentWindow) {
+            long tokens = remaining.getAndSet(0);
+            return window == currentWindow ? tokens : 0;
+        }
+
+        void renew(long newWindow, long newValidUntil, long tokens) {
+            remaining.set(tokens);
+            validUntil = newValidUntil;
+            window = newWindow;
+        }
+    }
+}
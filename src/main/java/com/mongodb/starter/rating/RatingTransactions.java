@@ -0,0 +1,119 @@
+package com.mongodb.starter.rating;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import org.bson.Document;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.mongodb.MongoException;
+import com.mongodb.starter.configuration.MongoTransactionConfig;
+
+/*
+ * Escritura de una valoración, su agregado ($inc) y su entrada del outbox en una sola transacción de Mongo:
+ * o se aplican las tres o ninguna. Dos escrituras concurrentes sobre el agregado del mismo curso provocan un
+ * WriteConflict (etiqueta TransientTransactionError) y la transacción entera se repite desde el principio,
+ * tras una espera exponencial con jitter; si se agotan los intentos se lanza ConcurrentWriteException (503).
+ * Un Mongo standalone no admite transacciones: se detecta en la primera escritura y se escribe sin transacción.
+ */
+@Component
+public class RatingTransactions {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RatingTransactions.class);
+
+    // La espera entre intentos deja de crecer a partir de este intento
+    private static final int MAX_BACKOFF_SHIFT = 4;
+
+    private final Supplier<TransactionOperations> resolver;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private volatile TransactionOperations transactionOperations;
+
+    @Autowired
+    public RatingTransactions(MongoTransactionManager transactionManager, MongoTemplate mongoTemplate, RatingConfig ratingConfig) {
+        this(() -> {
+            if (MongoTransactionConfig.supportsTransactions(mongoTemplate.executeCommand(new Document("hello", 1)))) {
+                return new TransactionTemplate(transactionManager);
+            }
+            LOGGER.warn("Mongo is not a replica set: ratings, aggregates and outbox changes are written without a transaction");
+            return TransactionOperations.withoutTransaction();
+        }, ratingConfig.getTransactionMaxAttempts(), ratingConfig.getTransactionBackoffMs());
+    }
+
+    public RatingTransactions(TransactionOperations transactionOperations, int maxAttempts) {
+        this(() -> transactionOperations, maxAttempts, 0);
+    }
+
+    RatingTransactions(Supplier<TransactionOperations> resolver, int maxAttempts, long backoffMs) {
+        this.resolver = resolver;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMs = Math.max(0, backoffMs);
+    }
+
+    // work puede ejecutarse varias veces: no debe tener efectos fuera de Mongo
+    public <T> T execute(Supplier<T> work) {
+        TransactionOperations operations = transactionOperations();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return operations.execute(status -> work.get());
+            } catch (RuntimeException e) {
+                if (!isTransient(e)) {
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    throw new RatingService.ConcurrentWriteException("Too many concurrent writes, retry later", e);
+                }
+                LOGGER.debug("Transient transaction error (attempt {} of {}), retrying: {}", attempt, maxAttempts, e.getMessage());
+                backOff(attempt, e);
+            }
+        }
+    }
+
+    // Se resuelve en la primera escritura y no al arrancar: si Mongo no responde todavía, se vuelve a intentar en la siguiente
+    private TransactionOperations transactionOperations() {
+        TransactionOperations operations = transactionOperations;
+        if (operations == null) {
+            operations = resolver.get();
+            transactionOperations = operations;
+        }
+        return operations;
+    }
+
+    private void backOff(int attempt, RuntimeException cause) {
+        long delay = backoffMs(backoffMs, attempt);
+        if (delay == 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RatingService.ConcurrentWriteException("Interrupted while retrying a conflicting write", cause);
+        }
+    }
+
+    // Exponencial con jitter: entre la mitad y el total de backoffMs * 2^(attempt - 1)
+    static long backoffMs(long backoffMs, int attempt) {
+        long capped = backoffMs << Math.min(attempt - 1, MAX_BACKOFF_SHIFT);
+        return capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1);
+    }
+
+    // Spring traduce la MongoException, así que la etiqueta se busca en toda la cadena de causas
+    static boolean isTransient(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException mongo && mongo.hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
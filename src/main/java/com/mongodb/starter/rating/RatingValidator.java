@@ -1,7 +1,9 @@
 package com.mongodb.starter.rating;
 
+import org.bson.types.ObjectId;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
+import org.springframework.validation.BeanPropertyBindingResult;
 import org.springframework.validation.Errors;
 import org.springframework.validation.Validator;
 
@@ -21,9 +23,7 @@ public class RatingValidator implements Validator{
         String courseId = rating.getCourseId();
 
 		// description validation
-		if (!StringUtils.hasLength(description) || description.length()>500 || description.length()<1) {
-			errors.rejectValue("description", REQUIRED+" and between 1 and 500 characters");
-		}
+		validateDescription(description, errors);
         
         // userId validation
 		if (!StringUtils.hasLength(userId)) {
@@ -41,11 +41,56 @@ public class RatingValidator implements Validator{
 		}
 
 		// rating validation
-		if (rating_number>5 || rating_number<=0) {
+		validateRatingNumber(rating_number, errors);
+
+		validateKey(rating, errors);
+	}
+
+	// Valida una valoración nueva antes de conocer el nombre del estudiante (todo salvo username)
+	public Errors validateRequest(Rating rating) {
+		Errors errors = new BeanPropertyBindingResult(rating, "rating");
+		validateDescription(rating.getDescription(), errors);
+		if (!StringUtils.hasLength(rating.getUserId())) {
+			errors.rejectValue("userId", REQUIRED+"");
+		}
+		if (!StringUtils.hasLength(rating.getCourseId())) {
+			errors.rejectValue("courseId", REQUIRED+"");
+		}
+		validateRatingNumber(rating.getRating(), errors);
+		validateKey(rating, errors);
+		return errors;
+	}
+
+	// Valida solo los campos que puede modificar una actualización (description y rating)
+	public Errors validateChanges(Rating rating) {
+		Errors errors = new BeanPropertyBindingResult(rating, "rating");
+		validateDescription(rating.getDescription(), errors);
+		validateRatingNumber(rating.getRating(), errors);
+		return errors;
+	}
+
+	private void validateDescription(String description, Errors errors) {
+		if (!StringUtils.hasLength(description) || description.length()>500 || description.length()<1) {
+			errors.rejectValue("description", REQUIRED+" and between 1 and 500 characters");
+		}
+	}
+
+	private void validateRatingNumber(Integer rating_number, Errors errors) {
+		if (rating_number == null || rating_number>5 || rating_number<=0) {
 			errors.rejectValue("rating", REQUIRED+" and between 1 and 5");
 		}
 	}
 
+	// (date, _id) es la clave de paginación de RatingCursor: date obligatoria e _id generado por Mongo (ObjectId)
+	private void validateKey(Rating rating, Errors errors) {
+		if (rating.getDate() == null) {
+			errors.rejectValue("date", REQUIRED+"");
+		}
+		if (rating.getId() != null && !ObjectId.isValid(rating.getId())) {
+			errors.rejectValue("id", "must be an ObjectId");
+		}
+	}
+
 	@Override
 	public boolean supports(Class<?> clazz) {
 		return Rating.class.isAssignableFrom(clazz);
@@ -0,0 +1,191 @@
+package com.mongodb.starter.rating;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.Errors;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.mongodb.starter.exceptions.ValidationException;
+import com.mongodb.starter.student.ReactiveStudentProfileService;
+import com.mongodb.starter.student.UserService;
+import com.mongodb.starter.util.MessageResponse;
+
+import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/*
+ * Mismos endpoints que RatingController, servidos desde el event loop de Netty cuando
+ * spring.main.web-application-type=reactive. Ninguna llamada bloquea: Mongo reactivo y WebClient.
+ */
+@RestController
+@RequestMapping("/api/v1/course/{courseId}/ratings/")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Tag(name = "Ratings", description = "The ratings management API")
+public class ReactiveRatingController {
+
+    private final ReactiveRatingService ratingService;
+    private final ReactiveStudentProfileService studentProfileService;
+    private final RatingConfig ratingConfig;
+    private final RatingValidator ratingValidator;
+    private final UserService userService;
+
+    public ReactiveRatingController(ReactiveRatingService ratingService, ReactiveStudentProfileService studentProfileService,
+                                    RatingConfig ratingConfig, RatingValidator ratingValidator, UserService userService) {
+        this.ratingService = ratingService;
+        this.studentProfileService = studentProfileService;
+        this.ratingConfig = ratingConfig;
+        this.ratingValidator = ratingValidator;
+        this.userService = userService;
+    }
+
+    //CREATE
+    @PostMapping
+    @CircuitBreaker(name = "createRating", fallbackMethod = "controllerFallback")
+    public Mono<ResponseEntity<Rating>> create(@PathVariable("courseId") String courseId,
+                                               @RequestHeader("Authorization") String token,
+                                               @RequestBody @Valid Rating rating) {
+        if (!ratingConfig.isEnabled()) {
+            return Mono.just(new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE));
+        }
+
+        String bearer = token.trim();
+        String userId = userService.extractUserId(bearer);
+
+        Rating newRating = new Rating();
+        BeanUtils.copyProperties(rating, newRating, "id");
+        newRating.setCourseId(courseId);
+        newRating.setUserId(userId);
+
+        // Se valida antes de suscribirse: una petición inválida no llega a consultar al servicio de estudiantes
+        Errors errors = ratingValidator.validateRequest(newRating);
+        if (errors.hasErrors()) {
+            return Mono.error(new ValidationException(errorMessage(errors)));
+        }
+
+        Mono<String> studentName = studentProfileService.findStudentName(userId, bearer);
+        if (ratingConfig.getCreateBudgetMs() > 0) {
+            studentName = studentName.timeout(Duration.ofMillis(ratingConfig.getCreateBudgetMs()));
+        }
+        return studentName
+                .onErrorMap(e -> e instanceof TimeoutException || e instanceof WebClientRequestException,
+                        e -> new ResourceAccessException("Service Unavailable"))
+                .flatMap(name -> {
+                    newRating.setUsername(name);
+                    // La media se propaga al servicio de cursos desde el outbox, fuera de esta petición
+                    return ratingService.saveRating(newRating)
+                            .map(saved -> new ResponseEntity<>(saved, RatingController.rateLimitHeaders(
+                                    ratingService.remainingRequests(RatingConfig.Operation.CREATE, userId, courseId)), HttpStatus.CREATED));
+                })
+                .defaultIfEmpty(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    public Mono<ResponseEntity<String>> controllerFallback(String courseId, String token, Rating rating, Throwable throwable) {
+        // Un 429 no es un fallo del servicio: se responde tal cual
+        if (throwable instanceof RatingService.ThrottlingException) {
+            return Mono.error(throwable);
+        }
+        return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body("Fallback Circuit Breaker Activo: " + throwable.getMessage()));
+    }
+
+    //UPDATE
+    @PutMapping("{ratingId}")
+    public Mono<ResponseEntity<Rating>> update(@PathVariable("courseId") String courseId, @PathVariable("ratingId") String ratingId,
+                                               @RequestHeader("Authorization") String token, @RequestBody @Valid Rating rating) {
+        String userId = userService.extractUserId(token.trim());
+
+        Errors errors = ratingValidator.validateChanges(rating);
+        if (errors.hasErrors()) {
+            return Mono.error(new ValidationException(errorMessage(errors)));
+        }
+
+        // La comprobación del propietario va en el filtro {_id, userId} de la propia escritura
+        return ratingService.updateRating(rating, ratingId, userId, courseId)
+                .map(updated -> new ResponseEntity<>(updated, RatingController.rateLimitHeaders(
+                        ratingService.remainingRequests(RatingConfig.Operation.UPDATE, userId, courseId)), HttpStatus.OK))
+                .onErrorResume(RatingService.RatingOwnershipException.class,
+                        e -> Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build()));
+    }
+
+    //DELETE
+    @DeleteMapping("{ratingId}")
+    public Mono<ResponseEntity<MessageResponse>> delete(@PathVariable("courseId") String courseId, @RequestHeader("Authorization") String token,
+                                                        @PathVariable("ratingId") String ratingId) {
+        String userId = userService.extractUserId(token.trim());
+
+        return ratingService.deleteRating(ratingId, userId, courseId)
+                .map(deleted -> new ResponseEntity<>(new MessageResponse("Rating deleted!"), RatingController.rateLimitHeaders(
+                        ratingService.remainingRequests(RatingConfig.Operation.DELETE, userId, courseId)), HttpStatus.OK))
+                .onErrorResume(RatingService.RatingOwnershipException.class,
+                        e -> Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build()));
+    }
+
+    //GET BY ID
+    @GetMapping("{ratingId}")
+    public Mono<Rating> findById(@PathVariable("ratingId") String ratingId) {
+        return ratingService.findRatingById(ratingId);
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<List<Rating>>> findAllByCourse(@PathVariable("courseId") String courseId,
+                                                              @RequestParam(value = "limit", required = false) Integer limit,
+                                                              @RequestParam(value = "next", required = false) String next,
+                                                              ServerWebExchange exchange) {
+        int pageSize = RatingService.pageSize(ratingConfig, limit);
+        // La versión del curso se lee antes que la lista: el contenido servido nunca es más antiguo que su ETag
+        return ratingService.findCourseAggregate(courseId).flatMap(course -> {
+            String etag = RatingController.listingETag(course, pageSize, next);
+            if (exchange.checkNotModified(etag)) {
+                return Mono.just(new ResponseEntity<List<Rating>>(RatingController.listingHeaders(), HttpStatus.NOT_MODIFIED));
+            }
+            return ratingService.findRatingsPageByCourse(courseId, limit, next).map(page -> {
+                HttpHeaders headers = RatingController.listingHeaders();
+                if (page.getNext() != null) {
+                    headers.set(RatingController.NEXT_CURSOR_HEADER, page.getNext());
+                }
+                return new ResponseEntity<>(page.getRatings(), headers, HttpStatus.OK);
+            });
+        });
+    }
+
+    // WebFlux escribe cada elemento según llega del cursor reactivo, con contrapresión hacia Mongo
+    @GetMapping(value = "export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Rating> export(@PathVariable("courseId") String courseId) {
+        return ratingService.streamAllRatingsByCourse(courseId);
+    }
+
+    private String errorMessage(Errors errors) {
+        StringBuilder errorMessage = new StringBuilder();
+        for (org.springframework.validation.FieldError error : errors.getFieldErrors()) {
+            errorMessage.append(error.getField())
+                        .append(": ")
+                        .append(error.getDefaultMessage())
+                        .append("\n");
+        }
+        return errorMessage.toString();
+    }
+
+}
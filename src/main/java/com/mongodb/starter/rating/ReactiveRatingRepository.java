@@ -0,0 +1,24 @@
+package com.mongodb.starter.rating;
+
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Meta;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import reactor.core.publisher.Flux;
+
+// Contrapartida reactiva de RatingRepository, con las mismas consultas e índices
+@Repository
+public interface ReactiveRatingRepository extends ReactiveMongoRepository<Rating, String>, ReactiveRatingRepositoryCustom {
+
+    @Meta(cursorBatchSize = RatingRepository.EXPORT_BATCH_SIZE)
+    @Query("{ 'courseId': ?0 }")
+    Flux<Rating> findAllRatingsByCourse(@Param("courseId") String courseId);
+
+    @Query(value = "{ 'courseId': ?0 }", sort = "{ 'date': -1, '_id': -1 }")
+    Flux<Rating> findFirstRatingsPageByCourse(@Param("courseId") String courseId, Pageable pageable);
+
+}
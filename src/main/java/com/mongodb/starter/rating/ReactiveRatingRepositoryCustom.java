@@ -0,0 +1,19 @@
+package com.mongodb.starter.rating;
+
+import org.springframework.data.domain.Pageable;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveRatingRepositoryCustom {
+
+    // Aplica los cambios solo si la valoración pertenece al usuario y al curso; emite el documento previo o vacío
+    Mono<Rating> updateOwnedRating(String id, String userId, String courseId, String description, Integer rating);
+
+    // Borra la valoración solo si pertenece al usuario y al curso; emite el documento borrado o vacío
+    Mono<Rating> deleteOwnedRating(String id, String userId, String courseId);
+
+    // Paginación por cursor: las valoraciones que van detrás de cursor, más recientes primero
+    Flux<Rating> findRatingsPageByCourseAfter(String courseId, RatingCursor cursor, Pageable pageable);
+
+}
@@ -0,0 +1,44 @@
+package com.mongodb.starter.rating;
+
+import static com.mongodb.starter.rating.RatingRepositoryCustomImpl.after;
+import static com.mongodb.starter.rating.RatingRepositoryCustomImpl.changes;
+import static com.mongodb.starter.rating.RatingRepositoryCustomImpl.ownedBy;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Versión no bloqueante de RatingRepositoryCustomImpl: mismas escrituras condicionadas por {_id, userId, courseId}
+class ReactiveRatingRepositoryCustomImpl implements ReactiveRatingRepositoryCustom {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    ReactiveRatingRepositoryCustomImpl(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    @Override
+    public Mono<Rating> updateOwnedRating(String id, String userId, String courseId, String description, Integer rating) {
+        Update update = changes(description, rating);
+        if (update.getUpdateObject().isEmpty()) {
+            return reactiveMongoTemplate.findOne(ownedBy(id, userId, courseId), Rating.class);
+        }
+        return reactiveMongoTemplate.findAndModify(ownedBy(id, userId, courseId), update,
+                FindAndModifyOptions.options().returnNew(false), Rating.class);
+    }
+
+    @Override
+    public Mono<Rating> deleteOwnedRating(String id, String userId, String courseId) {
+        return reactiveMongoTemplate.findAndRemove(ownedBy(id, userId, courseId), Rating.class);
+    }
+
+    @Override
+    public Flux<Rating> findRatingsPageByCourseAfter(String courseId, RatingCursor cursor, Pageable pageable) {
+        return reactiveMongoTemplate.find(after(courseId, cursor).with(pageable), Rating.class);
+    }
+
+}
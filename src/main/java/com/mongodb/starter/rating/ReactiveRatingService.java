@@ -0,0 +1,219 @@
+package com.mongodb.starter.rating;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.ReactiveMongoTransactionManager;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import com.mongodb.starter.configuration.MongoTransactionConfig;
+import com.mongodb.starter.exceptions.ResourceNotFoundException;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+/*
+ * Versión no bloqueante de RatingService para spring.main.web-application-type=reactive.
+ * Mismas reglas (feature toggle, throttling, propietario en el filtro de la escritura) y mismas
+ * actualizaciones de CourseRatingAggregate y del outbox, en la misma transacción que la valoración,
+ * pero con el driver reactivo de Mongo.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveRatingService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReactiveRatingService.class);
+
+    private final ReactiveRatingRepository ratingRepository;
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final RatingConfig ratingConfig;
+    private final RatingThrottler ratingThrottler;
+    private final TransactionalOperator transactionalOperator;
+    private final Mono<Boolean> transactionsSupported;
+
+    public ReactiveRatingService(ReactiveRatingRepository ratingRepository, ReactiveMongoTemplate reactiveMongoTemplate,
+                                 RatingConfig ratingConfig, RatingThrottler ratingThrottler,
+                                 ReactiveMongoTransactionManager transactionManager) {
+        this.ratingRepository = ratingRepository;
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.ratingConfig = ratingConfig;
+        this.ratingThrottler = ratingThrottler;
+        this.transactionalOperator = TransactionalOperator.create(transactionManager);
+        // Se resuelve en la primera escritura; un error (Mongo aún no disponible) no se guarda y se reintenta en la siguiente
+        this.transactionsSupported = reactiveMongoTemplate.executeCommand("{hello: 1}")
+                .map(MongoTransactionConfig::supportsTransactions)
+                .doOnNext(supported -> {
+                    if (!supported) {
+                        LOGGER.warn("Mongo is not a replica set: ratings, aggregates and outbox changes are written without a transaction");
+                    }
+                })
+                .cache(supported -> Duration.ofMillis(Long.MAX_VALUE), error -> Duration.ZERO, () -> Duration.ZERO);
+    }
+
+    public Mono<Rating> findRatingById(String id) {
+        return ratingRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException("Rating", "ID", id)));
+    }
+
+    public Flux<Rating> streamAllRatingsByCourse(String courseId) {
+        return ratingRepository.findAllRatingsByCourse(courseId);
+    }
+
+    // Versión y fecha del último cambio del curso: una lectura por _id, sin tocar las valoraciones
+    public Mono<CourseRatingAggregate> findCourseAggregate(String courseId) {
+        return reactiveMongoTemplate.findById(courseId, CourseRatingAggregate.class)
+                .defaultIfEmpty(new CourseRatingAggregate(courseId));
+    }
+
+    public Mono<RatingPage> findRatingsPageByCourse(String courseId, Integer limit, String next) {
+        return Mono.defer(() -> {
+            int pageSize = RatingService.pageSize(ratingConfig, limit);
+            PageRequest pageRequest = PageRequest.of(0, pageSize + 1);
+            Flux<Rating> ratings;
+            if (next == null || next.isBlank()) {
+                ratings = ratingRepository.findFirstRatingsPageByCourse(courseId, pageRequest);
+            } else {
+                RatingCursor cursor = RatingCursor.decode(next);
+                ratings = ratingRepository.findRatingsPageByCourseAfter(courseId, cursor, pageRequest);
+            }
+            return ratings.collectList().map(list -> RatingPage.of(list, pageSize));
+        });
+    }
+
+    public Mono<List<CourseRatingAggregate>> findCourseSummaries(List<String> courseIds) {
+        return Mono.defer(() -> {
+            List<String> ids = RatingService.summaryCourseIds(ratingConfig, courseIds);
+            return reactiveMongoTemplate.find(query(where("_id").in(ids)), CourseRatingAggregate.class)
+                    .collectMap(CourseRatingAggregate::getCourseId)
+                    .map(aggregates -> RatingService.summaries(ids, aggregates));
+        });
+    }
+
+    public Mono<Rating> saveRating(Rating rating) {
+        return checkAllowed(RatingConfig.Operation.CREATE, rating.getUserId(), rating.getCourseId())
+                .then(transactional(Mono.defer(() -> ratingRepository.save(rating))
+                        .flatMap(saved -> courseChanged(saved.getCourseId())
+                                .then(aggregate(saved.getCourseId(), CourseRatingAggregator.added(saved.getRating())))
+                                .thenReturn(saved))));
+    }
+
+    // Actualización en un único findAndModify filtrado por {_id, userId, courseId}: el curso limitado es el guardado
+    public Mono<Rating> updateRating(Rating rating, String id, String userId, String courseId) {
+        return checkAllowed(RatingConfig.Operation.UPDATE, userId, courseId)
+                .then(transactional(Mono.defer(() ->
+                        ratingRepository.updateOwnedRating(id, userId, courseId, rating.getDescription(), rating.getRating()))
+                        .switchIfEmpty(Mono.defer(() -> notFoundOrNotOwner(id, userId, courseId)))
+                        .flatMap(updated -> {
+                            Integer previousStars = updated.getRating();
+                            if (rating.getDescription() != null) {
+                                updated.setDescription(rating.getDescription());
+                            }
+                            if (rating.getRating() != null) {
+                                updated.setRating(rating.getRating());
+                            }
+                            Mono<Void> outbox = Objects.equals(previousStars, updated.getRating())
+                                    ? Mono.empty() : courseChanged(updated.getCourseId());
+                            return outbox
+                                    .then(aggregate(updated.getCourseId(), CourseRatingAggregator.changed(previousStars, updated.getRating())))
+                                    .thenReturn(updated);
+                        })));
+    }
+
+    // Borrado en un único findAndRemove filtrado por {_id, userId, courseId}; emite la valoración borrada
+    public Mono<Rating> deleteRating(String id, String userId, String courseId) {
+        return checkAllowed(RatingConfig.Operation.DELETE, userId, courseId)
+                .then(transactional(Mono.defer(() -> ratingRepository.deleteOwnedRating(id, userId, courseId))
+                        .switchIfEmpty(Mono.defer(() -> notFoundOrNotOwner(id, userId, courseId)))
+                        .flatMap(deleted -> courseChanged(deleted.getCourseId())
+                                .then(aggregate(deleted.getCourseId(), CourseRatingAggregator.removed(deleted.getRating())))
+                                .thenReturn(deleted))));
+    }
+
+    /*
+     * Fuera queda el throttling; la transacción se repite entera, con backoff exponencial y jitter, si Mongo la aborta
+     * por un conflicto transitorio. Agotados los intentos se responde 503. Contra un Mongo standalone se escribe sin transacción.
+     */
+    private <T> Mono<T> transactional(Mono<T> writes) {
+        return transactionsSupported
+                .flatMap(supported -> supported ? writes.as(transactionalOperator::transactional) : writes)
+                .retryWhen(Retry.backoff(Math.max(0, ratingConfig.getTransactionMaxAttempts() - 1),
+                                Duration.ofMillis(Math.max(1, ratingConfig.getTransactionBackoffMs())))
+                        .jitter(0.5)
+                        .filter(RatingTransactions::isTransient)
+                        .onRetryExhaustedThrow((spec, signal) ->
+                                new RatingService.ConcurrentWriteException("Too many concurrent writes, retry later", signal.failure())));
+    }
+
+    // Para X-RateLimit-Remaining tras una escritura admitida; solo lee los buckets en memoria
+    public long remainingRequests(RatingConfig.Operation operation, String userId, String courseId) {
+        return ratingThrottler.remaining(operation, userId, courseId);
+    }
+
+    // En modo local el throttler es en memoria y se evalúa en el propio event loop;
+    // en modo distributed una renovación de reserva va a Mongo, así que sale del event loop
+    private Mono<Void> checkAllowed(RatingConfig.Operation operation, String userId, String courseId) {
+        Mono<Void> check = Mono.fromRunnable(() -> {
+            if (!ratingConfig.isEnabled()) {
+                throw new RatingService.FeatureDisabledException("Rating feature is currently disabled");
+            }
+            ThrottleDecision decision = ratingThrottler.check(operation, userId, courseId);
+            if (!decision.allowed()) {
+                throw RatingService.ThrottlingException.of(decision, userId, courseId);
+            }
+        });
+        return ratingThrottler.isDistributed() ? check.subscribeOn(Schedulers.boundedElastic()) : check;
+    }
+
+    private Mono<Rating> notFoundOrNotOwner(String id, String userId, String courseId) {
+        return ratingRepository.findById(id)
+                .map(stored -> RatingService.notFoundOrNotOwner(stored, id, userId, courseId))
+                .defaultIfEmpty(new ResourceNotFoundException("Rating", "ID", id))
+                .flatMap(Mono::error);
+    }
+
+    // Como CourseRatingAggregator.apply: sin documento no hay $inc con upsert, se cuenta el curso entero
+    private Mono<Void> aggregate(String courseId, Update update) {
+        if (courseId == null || update == null) {
+            return Mono.empty();
+        }
+        return reactiveMongoTemplate.updateFirst(query(where("_id").is(courseId)), update, CourseRatingAggregate.class)
+                .flatMap(result -> result.getMatchedCount() == 0 ? rebuildAggregate(courseId) : Mono.empty());
+    }
+
+    // Equivalente reactivo de CourseRatingAggregator.rebuild: solo se guarda si version no cambió durante el recuento
+    private Mono<Void> rebuildAggregate(String courseId) {
+        return Mono.defer(() -> reactiveMongoTemplate.findById(courseId, CourseRatingAggregate.class)
+                        .map(CourseRatingAggregate::getVersion)
+                        .defaultIfEmpty(0L)
+                        .flatMap(version -> reactiveMongoTemplate.aggregate(CourseRatingAggregator.countByStars(courseId), Rating.class, Document.class)
+                                .reduce(new CourseRatingAggregate(courseId), CourseRatingAggregator::accumulate)
+                                .flatMap(counted -> reactiveMongoTemplate.upsert(CourseRatingAggregator.unchanged(courseId, version),
+                                        CourseRatingAggregator.rebuilt(counted), CourseRatingAggregate.class))))
+                .retryWhen(Retry.max(CourseRatingAggregator.REBUILD_ATTEMPTS - 1).filter(DuplicateKeyException.class::isInstance))
+                .then();
+    }
+
+    private Mono<Void> courseChanged(String courseId) {
+        if (courseId == null) {
+            return Mono.empty();
+        }
+        return reactiveMongoTemplate.insert(CourseRatingChange.of(courseId, Instant.now())).then();
+    }
+
+}
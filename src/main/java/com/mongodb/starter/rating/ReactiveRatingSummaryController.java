@@ -0,0 +1,38 @@
+package com.mongodb.starter.rating;
+
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.swagger.v3.oas.annotations.tags.Tag;
+import reactor.core.publisher.Mono;
+
+// Mismo endpoint que RatingSummaryController para spring.main.web-application-type=reactive
+@RestController
+@RequestMapping("/api/v1/ratings/")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Tag(name = "Ratings", description = "The ratings management API")
+public class ReactiveRatingSummaryController {
+
+    private final ReactiveRatingService ratingService;
+    private final RatingConfig ratingConfig;
+
+    public ReactiveRatingSummaryController(ReactiveRatingService ratingService, RatingConfig ratingConfig) {
+        this.ratingService = ratingService;
+        this.ratingConfig = ratingConfig;
+    }
+
+    @GetMapping("summary")
+    public Mono<ResponseEntity<List<CourseRatingAggregate>>> summary(@RequestParam(value = "courseIds", required = false) List<String> courseIds) {
+        return ratingService.findCourseSummaries(courseIds)
+                .map(summaries -> ResponseEntity.ok()
+                        .cacheControl(RatingSummaryController.summaryCacheControl(ratingConfig))
+                        .body(summaries));
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.mongodb.starter.rating;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.Getter;
+
+/*
+ * Página de valoraciones ya convertida a JSON, y comprimida con gzip una sola vez si merece la pena,
+ * para escribir los bytes en la respuesta sin pasar por Jackson ni recomprimir en cada petición.
+ */
+@Getter
+public final class SerializedRatingPage {
+
+    // Por debajo de este tamaño gzip apenas ahorra y cuesta CPU en el cliente
+    static final int GZIP_MIN_SIZE = 1024;
+
+    // Versión del curso con la que se cargó la página
+    private final long version;
+    private final byte[] json;
+    // null si la página es demasiado pequeña para comprimirla
+    private final byte[] gzip;
+    private final String next;
+
+    private SerializedRatingPage(long version, byte[] json, byte[] gzip, String next) {
+        this.version = version;
+        this.json = json;
+        this.gzip = gzip;
+        this.next = next;
+    }
+
+    // El mismo ObjectMapper que usa Spring MVC: los bytes son idénticos a los que escribiría el conversor de mensajes
+    public static SerializedRatingPage encode(long version, RatingPage page, ObjectMapper objectMapper) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(page.getRatings());
+            return new SerializedRatingPage(version, json, json.length >= GZIP_MIN_SIZE ? gzip(json) : null, page.getNext());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Peso en la caché, en bytes
+    public int weight() {
+        return json.length + (gzip != null ? gzip.length : 0);
+    }
+
+    // Accept-Encoding con gzip y q distinto de 0
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (!parts[0].trim().equalsIgnoreCase("gzip")) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(parameter.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static byte[] gzip(byte[] json) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        }
+        return out.toByteArray();
+    }
+
+}
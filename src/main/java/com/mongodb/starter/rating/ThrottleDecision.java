@@ -0,0 +1,19 @@
+package com.mongodb.starter.rating;
+
+/*
+ * Resultado de RatingThrottler.check. scope es el nivel que rechazó la petición (user, course o global)
+ * y retryAfterMillis la espera hasta que ese nivel vuelva a tener tokens.
+ */
+public record ThrottleDecision(boolean allowed, String scope, long retryAfterMillis) {
+
+    public static final String USER = "user";
+    public static final String COURSE = "course";
+    public static final String GLOBAL = "global";
+
+    public static final ThrottleDecision ALLOWED = new ThrottleDecision(true, null, 0);
+
+    public static ThrottleDecision rejected(String scope, long retryAfterMillis) {
+        return new ThrottleDecision(false, scope, retryAfterMillis);
+    }
+
+}
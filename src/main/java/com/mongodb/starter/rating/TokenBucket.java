@@ -1,55 +1,124 @@
 package com.mongodb.starter.rating;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+/*
+ * Sin bloqueos: todo el estado va en un único AtomicLong y se actualiza con CAS.
+ *   bits 63..24  ms desde la creación del bucket de la última recarga (40 bits, ~34 años)
+ *   bits 23..0   tokens en coma fija; los bits que no necesita la capacidad son la parte fraccionaria
+ */
 public class TokenBucket {
-    private final double capacity;
+    private static final int TOKEN_BITS = 24;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    private static final long MAX_ELAPSED = (1L << (Long.SIZE - TOKEN_BITS)) - 1;
+    private static final long FULL_REFILL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final long origin;
+    private final long one;
+    private final long capacity;
+    // Unidades de coma fija que se recargan por milisegundo
     private final double refillRate;
-    @SuppressWarnings("unused")
-    private final double requestsPerHour;
-    private double tokens;
-    private long lastRefillTimestamp;
-    
+    private final AtomicLong state;
+
     public TokenBucket(long burstSize, long requestsPerHour) {
         this(burstSize, requestsPerHour, System.currentTimeMillis());
     }
-    
+
     public TokenBucket(long burstSize, long requestsPerHour, long initialTimestamp) {
-        this.capacity = Math.max(burstSize, requestsPerHour);
-        this.requestsPerHour = requestsPerHour;
-        this.refillRate = (double) requestsPerHour / (3600.0 * 1000.0);
-        this.tokens = burstSize;
-        this.lastRefillTimestamp = initialTimestamp;
+        long maxTokens = Math.max(burstSize, requestsPerHour);
+        int integerBits = Long.SIZE - Long.numberOfLeadingZeros(maxTokens);
+        if (integerBits > TOKEN_BITS) {
+            throw new IllegalArgumentException("Token bucket capacity too large: " + maxTokens);
+        }
+        this.origin = initialTimestamp;
+        this.one = 1L << (TOKEN_BITS - integerBits);
+        this.capacity = maxTokens * one;
+        this.refillRate = (double) requestsPerHour * one / FULL_REFILL_MILLIS;
+        this.state = new AtomicLong(pack(0, Math.min(burstSize * one, capacity)));
+    }
+
+    public boolean tryConsume(long currentTimeMillis) {
+        long now = elapsed(currentTimeMillis);
+        while (true) {
+            long current = state.get();
+            long next = refill(current, now);
+            if ((next & TOKEN_MASK) < one) {
+                // Denegar no escribe: la recarga se recalcula igual en la siguiente llamada
+                return false;
+            }
+            if (state.compareAndSet(current, next - one)) {
+                return true;
+            }
+        }
     }
 
-    public synchronized boolean tryConsume(long currentTimeMillis) {
-        refill(currentTimeMillis);
-        
-        if (tokens >= 1.0) {
-            tokens --;
-            return true;
+    // Devuelve un token consumido por una petición que otro nivel acabó rechazando
+    public void refund() {
+        while (true) {
+            long current = state.get();
+            long tokens = Math.min(capacity, (current & TOKEN_MASK) + one);
+            if (state.compareAndSet(current, (current & ~TOKEN_MASK) | tokens)) {
+                return;
+            }
         }
-        return false;
     }
 
-    private void refill(long currentTimeMillis) {
-        long elapsedMillis = currentTimeMillis - lastRefillTimestamp;
-    
-        if (elapsedMillis <= 0) {
-            return;
+    // Tokens enteros disponibles en currentTimeMillis, sin consumir
+    public long available(long currentTimeMillis) {
+        return (refill(state.get(), elapsed(currentTimeMillis)) & TOKEN_MASK) / one;
+    }
+
+    // Espera hasta que haya al menos un token: por recarga o por la recarga completa tras una hora
+    public long millisUntilAvailable(long currentTimeMillis) {
+        long now = elapsed(currentTimeMillis);
+        long next = refill(state.get(), now);
+        long tokens = next & TOKEN_MASK;
+        if (tokens >= one) {
+            return 0;
+        }
+        long timestamp = next >>> TOKEN_BITS;
+        long wait = timestamp + FULL_REFILL_MILLIS - now;
+        if (refillRate > 0) {
+            wait = Math.min(wait, timestamp + (long) Math.ceil((one - tokens) / refillRate) - now);
         }
+        return Math.max(0, wait);
+    }
+
+    private long elapsed(long currentTimeMillis) {
+        return Math.min(Math.max(currentTimeMillis - origin, 0), MAX_ELAPSED);
+    }
 
-        if (elapsedMillis >= TimeUnit.HOURS.toMillis(1)) {
-            tokens = capacity;
-        } else {
-            double tokensToAdd = elapsedMillis * refillRate;
-            tokens = Math.min(capacity, tokens + tokensToAdd);
+    private long refill(long current, long now) {
+        long timestamp = current >>> TOKEN_BITS;
+        long tokens = current & TOKEN_MASK;
+        long elapsed = now - timestamp;
+        if (elapsed <= 0) {
+            return current;
+        }
+        if (elapsed >= FULL_REFILL_MILLIS) {
+            return pack(now, capacity);
+        }
+        long added = (long) (elapsed * refillRate);
+        if (tokens + added >= capacity) {
+            return pack(now, capacity);
         }
-        
-        lastRefillTimestamp = currentTimeMillis;
+        if (added == 0) {
+            return current;
+        }
+        // Solo avanza el tiempo equivalente a las unidades añadidas: el resto no se pierde por redondeo
+        return pack(timestamp + (long) (added / refillRate), tokens + added);
+    }
+
+    private static long pack(long timestamp, long tokens) {
+        return (timestamp << TOKEN_BITS) | tokens;
+    }
+
+    public double getTokens() {
+        return (double) (state.get() & TOKEN_MASK) / one;
     }
 
     public long getLastRefillTimestamp() {
-        return lastRefillTimestamp;
+        return origin + (state.get() >>> TOKEN_BITS);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,46 @@
+package com.mongodb.starter.security;
+
+import java.util.List;
+
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+// Token ya verificado: userId (sub) y rol (claim configurable) disponibles durante la petición
+public class JwtAuthentication extends AbstractAuthenticationToken {
+
+    private final String userId;
+    private final String role;
+    private final String token;
+
+    public JwtAuthentication(String userId, String role, String token) {
+        super(role == null ? List.of() : List.of(new SimpleGrantedAuthority("ROLE_" + role.toUpperCase())));
+        this.userId = userId;
+        this.role = role;
+        this.token = token;
+        setAuthenticated(true);
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    // Token sin el prefijo "Bearer "
+    public String getToken() {
+        return token;
+    }
+
+    @Override
+    public Object getPrincipal() {
+        return userId;
+    }
+
+    @Override
+    public Object getCredentials() {
+        return token;
+    }
+
+}
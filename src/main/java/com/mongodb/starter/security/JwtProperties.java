@@ -0,0 +1,26 @@
+package com.mongodb.starter.security;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Configuration
+@ConfigurationProperties(prefix = "security.jwt")
+@Getter
+@Setter
+public class JwtProperties {
+    // false: los controladores leen el sub del token sin verificar la firma
+    private boolean enabled = false;
+    // Clave HMAC en Base64 (HS256/384/512)
+    private String secret;
+    // Clave pública PEM (RSA o EC) del servicio de autenticación; tiene prioridad sobre secret
+    private String publicKey;
+    // Si se indica, se exige este iss
+    private String issuer;
+    private String roleClaim = "role";
+    private Duration clockSkew = Duration.ofSeconds(30);
+}
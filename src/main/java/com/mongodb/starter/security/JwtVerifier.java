@@ -0,0 +1,73 @@
+package com.mongodb.starter.security;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+
+import org.springframework.util.StringUtils;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.JwtParserBuilder;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.security.Keys;
+
+/*
+ * Verifica firma, exp/nbf (con clock-skew) e iss de los JWT con las claves configuradas,
+ * sin llamar al servicio de autenticación. El parser es inmutable y se comparte entre peticiones.
+ */
+public class JwtVerifier {
+
+    public static final String BEARER_PREFIX = "Bearer ";
+
+    private final JwtParser parser;
+    private final String roleClaim;
+
+    public JwtVerifier(JwtProperties properties) {
+        JwtParserBuilder builder = Jwts.parser().clockSkewSeconds(properties.getClockSkew().toSeconds());
+        if (StringUtils.hasText(properties.getPublicKey())) {
+            builder.verifyWith(publicKey(properties.getPublicKey()));
+        } else if (StringUtils.hasText(properties.getSecret())) {
+            builder.verifyWith(Keys.hmacShaKeyFor(Base64.getDecoder().decode(properties.getSecret().trim())));
+        } else {
+            throw new IllegalStateException("security.jwt.enabled requires security.jwt.public-key or security.jwt.secret");
+        }
+        if (StringUtils.hasText(properties.getIssuer())) {
+            builder.requireIssuer(properties.getIssuer());
+        }
+        this.parser = builder.build();
+        this.roleClaim = properties.getRoleClaim();
+    }
+
+    // Acepta el token con o sin el prefijo "Bearer "; lanza JwtException si no es válido
+    public JwtAuthentication verify(String token) throws JwtException {
+        String jwt = token.trim();
+        if (jwt.startsWith(BEARER_PREFIX)) {
+            jwt = jwt.substring(BEARER_PREFIX.length()).trim();
+        }
+        Claims claims = parser.parseSignedClaims(jwt).getPayload();
+        if (!StringUtils.hasText(claims.getSubject())) {
+            throw new MalformedJwtException("JWT has no subject");
+        }
+        Object role = claims.get(roleClaim);
+        return new JwtAuthentication(claims.getSubject(), role != null ? role.toString() : null, jwt);
+    }
+
+    static PublicKey publicKey(String pem) {
+        byte[] der = Base64.getMimeDecoder().decode(pem.replaceAll("-----(BEGIN|END) PUBLIC KEY-----", ""));
+        X509EncodedKeySpec spec = new X509EncodedKeySpec(der);
+        for (String algorithm : new String[] {"RSA", "EC"}) {
+            try {
+                return KeyFactory.getInstance(algorithm).generatePublic(spec);
+            } catch (GeneralSecurityException e) {
+                // Se prueba con el siguiente algoritmo
+            }
+        }
+        throw new IllegalStateException("security.jwt.public-key is not an RSA or EC public key");
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.mongodb.starter.student;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import reactor.core.publisher.Mono;
+
+/*
+ * Nombre del estudiante para la API reactiva: llamada no bloqueante con WebClient y caché asíncrona.
+ * Las peticiones concurrentes del mismo usuario comparten el mismo future; los nombres vacíos y los errores
+ * no se cachean. A diferencia de StudentProfileService no sirve nombres caducados.
+ * Como en StudentProfileService, la clave incluye el token: el userId sale de un sub sin verificar y un token
+ * falsificado con el sub de otro usuario no debe recibir su nombre sin pasar por el servicio de estudiantes.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveStudentProfileService {
+
+    private final WebClient studentWebClient;
+    private final StudentProfileCacheConfig config;
+    private final AsyncCache<ProfileKey, String> names;
+
+    @Value("${student.url}")
+    private String studentServiceUrl;
+
+    public ReactiveStudentProfileService(@Qualifier("studentWebClient") WebClient studentWebClient, StudentProfileCacheConfig config) {
+        this.studentWebClient = studentWebClient;
+        this.config = config;
+        this.names = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfterWrite(config.getTtl())
+                .buildAsync();
+    }
+
+    // Vacío si el servicio de estudiantes no tiene datos de contacto para el usuario
+    public Mono<String> findStudentName(String userId, String token) {
+        if (!config.isEnabled()) {
+            return fetchName(token);
+        }
+        // suppressCancel: si un llamante cancela, el resto sigue esperando la misma llamada
+        return Mono.fromFuture(() -> names.get(new ProfileKey(userId, token.trim()), (key, executor) -> fetchName(token).toFuture()), true);
+    }
+
+    public void invalidate(String userId) {
+        names.synchronous().asMap().keySet().removeIf(key -> key.userId().equals(userId));
+    }
+
+    private Mono<String> fetchName(String token) {
+        return studentWebClient.get()
+                .uri(studentServiceUrl)
+                .header(HttpHeaders.AUTHORIZATION, token.startsWith("Bearer ") ? token : "Bearer " + token)
+                .retrieve()
+                .bodyToMono(StudentDto.class)
+                .mapNotNull(student -> student.getContactInformation() != null ? student.getContactInformation().getName() : null);
+    }
+
+    private record ProfileKey(String userId, String token) {
+    }
+
+}
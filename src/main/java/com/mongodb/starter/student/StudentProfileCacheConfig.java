@@ -0,0 +1,27 @@
+package com.mongodb.starter.student;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Configuration
+@ConfigurationProperties(prefix = "student.profile-cache")
+@Getter
+@Setter
+public class StudentProfileCacheConfig {
+    private boolean enabled = true;
+    // Tiempo durante el que un nombre se sirve sin consultar al servicio de estudiantes
+    private Duration ttl = Duration.ofMinutes(10);
+    // Antigüedad máxima de un nombre que aún puede servirse si el servicio va lento
+    private Duration maxStaleness = Duration.ofHours(24);
+    // Espera máxima por el refresco de una entrada caducada antes de servir el nombre antiguo
+    private Duration slowCallThreshold = Duration.ofMillis(300);
+    private long maximumSize = 10000;
+    // Solo en modo de hilos de plataforma; con hilos virtuales cada refresco usa su propio hilo
+    private int refreshThreads = 4;
+
+}
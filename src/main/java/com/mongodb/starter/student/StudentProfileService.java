@@ -0,0 +1,194 @@
+package com.mongodb.starter.student;
+
+import java.time.Clock;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.annotation.PreDestroy;
+
+/*
+ * Nombre del estudiante por userId y token, cacheado para no llamar al servicio de estudiantes en cada valoración.
+ * - Dentro del TTL se sirve de la caché.
+ * - Caducado pero dentro de max-staleness: se refresca en segundo plano y, si el refresco tarda más de
+ *   slow-call-threshold o falla, se sirve el nombre antiguo.
+ * - Sin entrada (o demasiado antigua): se consulta y los errores se propagan al circuit breaker del controlador.
+ * Las peticiones concurrentes con el mismo token comparten una única llamada saliente. El servicio de estudiantes
+ * responde por el token (/me), y el userId solo viene del sub sin verificar: la clave incluye el token para que un
+ * token con el sub de otro usuario no reciba su nombre ni comparta su llamada.
+ */
+@Service
+public class StudentProfileService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StudentProfileService.class);
+
+    private final RestTemplate restTemplate;
+    private final StudentProfileCacheConfig config;
+    private final Clock clock;
+    private final Cache<ProfileKey, CachedName> names;
+    private final ConcurrentMap<ProfileKey, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final ExecutorService refreshExecutor;
+
+    @Value("${student.url}")
+    private String studentServiceUrl;
+
+    @Autowired
+    public StudentProfileService(RestTemplate restTemplate, StudentProfileCacheConfig config,
+                                 @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this(restTemplate, config, Clock.systemUTC(), virtualThreads);
+    }
+
+    StudentProfileService(RestTemplate restTemplate, StudentProfileCacheConfig config, Clock clock, boolean virtualThreads) {
+        this.restTemplate = restTemplate;
+        this.config = config;
+        this.clock = clock;
+        this.names = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfterWrite(config.getMaxStaleness())
+                .build();
+        this.refreshExecutor = virtualThreads ? Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("student-profile-refresh-", 1).factory()) : platformExecutor(config.getRefreshThreads());
+    }
+
+    private static ExecutorService platformExecutor(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "student-profile-refresh-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Devuelve null si el servicio de estudiantes no tiene datos de contacto para el usuario
+    public String findStudentName(String userId, String token) {
+        if (!config.isEnabled()) {
+            return fetchName(token);
+        }
+
+        ProfileKey key = new ProfileKey(userId, token.trim());
+        CachedName cached = names.getIfPresent(key);
+        long age = cached == null ? Long.MAX_VALUE : clock.millis() - cached.fetchedAt();
+        if (age >= config.getMaxStaleness().toMillis()) {
+            return await(load(key, false));
+        }
+        if (age < config.getTtl().toMillis()) {
+            return cached.name();
+        }
+
+        CompletableFuture<String> refresh = load(key, true);
+        try {
+            String name = refresh.get(config.getSlowCallThreshold().toMillis(), TimeUnit.MILLISECONDS);
+            return name != null ? name : cached.name();
+        } catch (TimeoutException e) {
+            LOGGER.debug("Student service slow for user {}, serving cached name", userId);
+            return cached.name();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RestClientException) {
+                LOGGER.warn("Student service refresh failed for user {}, serving cached name: {}", userId, e.getCause().getMessage());
+                return cached.name();
+            }
+            throw propagate(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return cached.name();
+        }
+    }
+
+    public void invalidate(String userId) {
+        names.asMap().keySet().removeIf(key -> key.userId().equals(userId));
+    }
+
+    // Solo el primero que llega lanza la consulta; el resto espera al mismo future
+    private CompletableFuture<String> load(ProfileKey key, boolean async) {
+        CompletableFuture<String> created = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing;
+        }
+
+        Runnable fetch = () -> {
+            try {
+                String name = fetchName(key.token());
+                if (name != null) {
+                    names.put(key, new CachedName(name, clock.millis()));
+                }
+                inFlight.remove(key, created);
+                created.complete(name);
+            } catch (Throwable t) {
+                inFlight.remove(key, created);
+                created.completeExceptionally(t);
+            }
+        };
+        if (async) {
+            refreshExecutor.execute(fetch);
+        } else {
+            fetch.run();
+        }
+        return created;
+    }
+
+    private String await(CompletableFuture<String> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw propagate(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for student profile", e);
+        }
+    }
+
+    private RuntimeException propagate(ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        return new IllegalStateException(e.getCause());
+    }
+
+    private String fetchName(String token) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", token.startsWith("Bearer ") ? token : "Bearer " + token);
+
+        ResponseEntity<StudentDto> response = restTemplate.exchange(
+                studentServiceUrl, HttpMethod.GET, new HttpEntity<>(headers), StudentDto.class);
+
+        StudentDto student = response.getBody();
+        if (student == null || student.getContactInformation() == null) {
+            return null;
+        }
+        return student.getContactInformation().getName();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private record CachedName(String name, long fetchedAt) {
+    }
+
+    private record ProfileKey(String userId, String token) {
+    }
+
+}
@@ -0,0 +1,21 @@
+package com.mongodb.starter.student;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Configuration
+@ConfigurationProperties(prefix = "auth.role-cache")
+@Getter
+@Setter
+public class UserRoleCacheConfig {
+    private boolean enabled = true;
+    private Duration ttl = Duration.ofMinutes(5);
+    // Tiempo durante el que se recuerda que un usuario no tiene rol (respuesta sin role o 404)
+    private Duration negativeTtl = Duration.ofSeconds(30);
+    private long maximumSize = 10000;
+}
@@ -1,76 +1,271 @@
 package com.mongodb.starter.student;
 
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
 import java.util.Base64;
-import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.mongodb.starter.security.JwtAuthentication;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import reactor.core.publisher.Mono;
 
 @Service
 public class UserService {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserService.class);
+    private static final String BEARER_PREFIX = "Bearer ";
+    // JsonFactory es thread-safe y reutiliza sus tablas de nombres entre parsers
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
     @Autowired
-    private WebClient.Builder webClientBuilder;
+    @Qualifier("authWebClient")
+    private WebClient authWebClient;
 
     @Value("${auth.url}")
     private String baseUrl;
 
+    private final Clock clock;
+    private final Duration tokenCacheTtl;
+    private final Cache<String, CachedSubject> subjects;
+    private final UserRoleCacheConfig roleCacheConfig;
+    private final AsyncCache<RoleKey, Optional<String>> roles;
+
+    @Autowired
+    public UserService(@Value("${auth.token-cache.maximum-size:10000}") long tokenCacheSize,
+                       @Value("${auth.token-cache.ttl:10m}") Duration tokenCacheTtl,
+                       UserRoleCacheConfig roleCacheConfig, MeterRegistry meterRegistry) {
+        this(tokenCacheSize, tokenCacheTtl, roleCacheConfig, Clock.systemUTC());
+        // auth.roles en cache.gets (hit/miss), cache.size y cache.evictions
+        CaffeineCacheMetrics.monitor(meterRegistry, roles.synchronous(), "auth.roles");
+    }
+
+    public UserService(long tokenCacheSize, Duration tokenCacheTtl, Clock clock) {
+        this(tokenCacheSize, tokenCacheTtl, new UserRoleCacheConfig(), clock);
+    }
+
+    public UserService(long tokenCacheSize, Duration tokenCacheTtl, UserRoleCacheConfig roleCacheConfig, Clock clock) {
+        this.clock = clock;
+        this.tokenCacheTtl = tokenCacheTtl;
+        this.roleCacheConfig = roleCacheConfig;
+        this.roles = Caffeine.newBuilder()
+                .maximumSize(roleCacheConfig.getMaximumSize())
+                .ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.millis()))
+                .expireAfter(new Expiry<RoleKey, Optional<String>>() {
+                    @Override
+                    public long expireAfterCreate(RoleKey key, Optional<String> role, long currentTime) {
+                        return (role.isPresent() ? roleCacheConfig.getTtl() : roleCacheConfig.getNegativeTtl()).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(RoleKey key, Optional<String> role, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, role, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(RoleKey key, Optional<String> role, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .buildAsync();
+        // Cada entrada caduca con el exp del token o con el TTL, lo que llegue antes
+        this.subjects = Caffeine.newBuilder()
+                .maximumSize(tokenCacheSize)
+                .expireAfter(new Expiry<String, CachedSubject>() {
+                    @Override
+                    public long expireAfterCreate(String signature, CachedSubject subject, long currentTime) {
+                        long remaining = Math.min(subject.expiresAt() - clock.millis(), tokenCacheTtl.toMillis());
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(remaining, 0));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String signature, CachedSubject subject, long currentTime, long currentDuration) {
+                        return expireAfterCreate(signature, subject, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String signature, CachedSubject subject, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
     public String getUserRoleById(String userId, String token) {
-        String url = baseUrl + userId;
+        // Con security.jwt.enabled el rol viene en el token ya verificado: no hace falta llamar al servicio de autenticación
+        JwtAuthentication verified = verifiedAuthentication(token);
+        if (verified != null && verified.getUserId().equals(userId) && verified.getRole() != null) {
+            return verified.getRole();
+        }
+
+        Optional<String> role;
+        if (!roleCacheConfig.isEnabled()) {
+            role = await(fetchRole(userId, token));
+        } else {
+            /*
+             * Sin verificación local el sub del token no está comprobado: la clave incluye el token para que uno
+             * falsificado con el sub de otro usuario no reciba su rol cacheado. Los fallos concurrentes del mismo
+             * token comparten la misma llamada; los errores no se cachean.
+             */
+            role = await(roles.get(new RoleKey(userId, token.trim()), (key, executor) -> fetchRole(key.userId(), token)));
+        }
+        return role.orElseThrow(() -> new RuntimeException("Error retrieving user role: Role not found for user ID: " + userId));
+    }
+
+    public void invalidateRole(String userId) {
+        roles.synchronous().asMap().keySet().removeIf(key -> key.userId().equals(userId));
+    }
+
+    // true si JwtAuthenticationFilter verificó la firma de este mismo token en la petición actual
+    public boolean isVerified(String token) {
+        return verifiedAuthentication(token) != null;
+    }
+
+    // Vacío si el usuario no tiene rol o el servicio de autenticación no lo conoce (404)
+    private CompletableFuture<Optional<String>> fetchRole(String userId, String token) {
+        return authWebClient
+                .get()
+                .uri(baseUrl + userId)
+                .headers(headers -> headers.set("Authorization", token))
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .map(userNode -> userNode.has("role") ? Optional.of(userNode.get("role").asText()) : Optional.<String>empty())
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.just(Optional.empty()))
+                .defaultIfEmpty(Optional.empty())
+                .toFuture();
+    }
+
+    private static Optional<String> await(CompletableFuture<Optional<String>> role) {
         try {
-            JsonNode userNode = webClientBuilder.build()
-                    .get()
-                    .uri(url)
-                    .headers(headers -> headers.set("Authorization", token))
-                    .retrieve()
-                    .bodyToMono(JsonNode.class)
-                    .block(); // Sincrónico, evita en entornos reactivos
-
-            if (userNode != null && userNode.has("role")) {
-                return userNode.get("role").asText();
-            } else {
-                throw new RuntimeException("Role not found for user ID: " + userId);
-            }
-        } catch (Exception e) {
-            throw new RuntimeException("Error retrieving user role: " + e.getMessage(), e);
+            return role.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new RuntimeException("Error retrieving user role: " + cause.getMessage(), cause);
         }
     }
 
     public String extractUserId(String token) {
+        JwtAuthentication verified = verifiedAuthentication(token);
+        if (verified != null) {
+            return verified.getUserId();
+        }
+
         try {
             // Eliminar cualquier espacio extra
             token = token.trim();
 
             // Verificar si el token tiene el prefijo "Bearer"
-            if (token.startsWith("Bearer ")) {
-                token = token.substring(7); // Eliminar el prefijo "Bearer "
-            } else {
+            if (!token.startsWith(BEARER_PREFIX)) {
                 throw new RuntimeException("Token no contiene el prefijo 'Bearer'");
             }
 
-            // Verificar que el token tenga el formato adecuado
-            String[] parts = token.split("\\.");
-            if (parts.length != 3) {
+            // Verificar que el token tenga el formato adecuado (header.payload.signature)
+            int payloadStart = BEARER_PREFIX.length();
+            int firstDot = token.indexOf('.', payloadStart);
+            int secondDot = firstDot < 0 ? -1 : token.indexOf('.', firstDot + 1);
+            if (firstDot < 0 || secondDot < 0 || token.indexOf('.', secondDot + 1) >= 0) {
                 throw new RuntimeException("Token malformado: El token debe tener 3 partes separadas por puntos");
             }
 
-            // Decodificar el payload (segunda parte del token)
-            String payload = new String(Base64.getDecoder().decode(parts[1]));
-            System.out.println("Payload del token: " + payload); // Verifica el contenido del payload
-            ObjectMapper mapper = new ObjectMapper();
-            Map<String, Object> payloadMap = mapper.readValue(payload, Map.class);
-            System.err.println(payloadMap.get("sub").toString());
-            return payloadMap.get("sub").toString();
+            // La firma identifica al token: si ya se decodificó y no ha caducado, no se vuelve a parsear
+            String signature = token.substring(secondDot + 1);
+            if (!signature.isEmpty()) {
+                CachedSubject cached = subjects.getIfPresent(signature);
+                if (cached != null && cached.expiresAt() > clock.millis()) {
+                    return cached.subject();
+                }
+            }
+
+            CachedSubject claims = readClaims(decode(token.substring(firstDot + 1, secondDot)));
+            if (!signature.isEmpty() && claims.expiresAt() > clock.millis()) {
+                subjects.put(signature, claims);
+            }
+            return claims.subject();
 
         } catch (Exception e) {
-            System.err.println("Error al procesar el token: " + e.getMessage());
+            LOGGER.debug("Error al procesar el token: {}", e.getMessage());
             throw new RuntimeException("Token inválido o malformado: " + e.getMessage());
         }
     }
 
+    // Autenticación que JwtAuthenticationFilter dejó en el contexto para este mismo token, si la hay
+    private static JwtAuthentication verifiedAuthentication(String token) {
+        if (token == null
+                || !(SecurityContextHolder.getContext().getAuthentication() instanceof JwtAuthentication authentication)) {
+            return null;
+        }
+        String jwt = token.trim();
+        if (jwt.startsWith(BEARER_PREFIX)) {
+            jwt = jwt.substring(BEARER_PREFIX.length()).trim();
+        }
+        return jwt.equals(authentication.getToken()) ? authentication : null;
+    }
+
+    // Los JWT usan base64url; se acepta también base64 estándar por compatibilidad
+    private static byte[] decode(String segment) {
+        boolean standard = segment.indexOf('+') >= 0 || segment.indexOf('/') >= 0;
+        return (standard ? Base64.getDecoder() : Base64.getUrlDecoder()).decode(segment);
+    }
+
+    // Recorre los tokens del payload hasta encontrar sub (y exp) sin construir un Map
+    private CachedSubject readClaims(byte[] payload) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("El payload no es un objeto JSON");
+            }
+            String subject = null;
+            long exp = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("sub".equals(field) && value.isScalarValue() && value != JsonToken.VALUE_NULL) {
+                    subject = parser.getValueAsString();
+                } else if ("exp".equals(field) && value.isNumeric()) {
+                    exp = parser.getLongValue();
+                } else {
+                    parser.skipChildren();
+                }
+                if (subject != null && exp != 0) {
+                    break;
+                }
+            }
+            if (subject == null) {
+                throw new IOException("El token no contiene 'sub'");
+            }
+            // Sin exp se cachea como mucho el TTL de la caché
+            long expiresAt = exp != 0 ? TimeUnit.SECONDS.toMillis(exp) : clock.millis() + tokenCacheTtl.toMillis();
+            return new CachedSubject(subject, expiresAt);
+        }
+    }
+
+    private record CachedSubject(String subject, long expiresAt) {
+    }
+
+    private record RoleKey(String userId, String token) {
+    }
+
 }
@@ -0,0 +1,88 @@
+package com.mongodb.starter.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.starter.student.UserService;
+
+/*
+ * Coste por llamada de UserService.extractUserId frente a la implementación anterior
+ * (split por regex, Base64 a String, ObjectMapper nuevo y Map completo).
+ * La asignación por llamada sale del profiler de GC (gc.alloc.rate.norm):
+ *
+ * mvn -P benchmark verify -Dbenchmark.include="JwtSubjectBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtSubjectBenchmark {
+
+    private String token;
+    private String[] distinctTokens;
+    private int next;
+    private UserService userService;
+    private UserService uncachedUserService;
+
+    @Setup
+    public void setUp() {
+        long exp = System.currentTimeMillis() / 1000 + 3600;
+        token = token("user-1", exp, "signature");
+        distinctTokens = new String[1024];
+        for (int i = 0; i < distinctTokens.length; i++) {
+            distinctTokens[i] = token("user-" + i, exp, "signature-" + i);
+        }
+        userService = new UserService(10_000, Duration.ofMinutes(10), Clock.systemUTC());
+        // Caché de tamaño 0: mide solo el parseo en streaming
+        uncachedUserService = new UserService(0, Duration.ofMinutes(10), Clock.systemUTC());
+    }
+
+    @Benchmark
+    public String legacy() throws Exception {
+        String raw = token.trim().substring(7);
+        String[] parts = raw.split("\\.");
+        String payload = new String(Base64.getUrlDecoder().decode(parts[1]));
+        Map<?, ?> claims = new ObjectMapper().readValue(payload, Map.class);
+        return claims.get("sub").toString();
+    }
+
+    @Benchmark
+    public String streamingParse() {
+        String current = distinctTokens[next++ & (distinctTokens.length - 1)];
+        return uncachedUserService.extractUserId(current);
+    }
+
+    @Benchmark
+    public String cachedSignature() {
+        return userService.extractUserId(token);
+    }
+
+    private static String token(String subject, long exp, String signature) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String header = "{\"alg\":\"RS256\",\"typ\":\"JWT\"}";
+        String payload = "{\"iss\":\"auth-service\",\"sub\":\"" + subject + "\",\"role\":\"student\",\"iat\":" + (exp - 3600)
+                + ",\"exp\":" + exp + "}";
+        return "Bearer " + encoder.encodeToString(header.getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(signature.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
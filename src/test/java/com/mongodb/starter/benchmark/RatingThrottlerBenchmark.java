@@ -0,0 +1,92 @@
+package com.mongodb.starter.benchmark;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mongodb.starter.rating.RatingConfig;
+import com.mongodb.starter.rating.RatingThrottler;
+import com.mongodb.starter.rating.TokenBucket;
+
+/*
+ * Coste de RatingThrottler.allowRequest con 1M de usuarios activos frente a la versión anterior,
+ * que recorría todo el mapa con removeIf en cada petición.
+ *
+ * mvn -P benchmark verify -Dbenchmark.include="RatingThrottlerBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class RatingThrottlerBenchmark {
+
+    private static final int USERS = 1 << 20;
+
+    private String[] userIds;
+    private int next;
+    private RatingThrottler throttler;
+    private LegacyThrottler legacyThrottler;
+
+    @Setup
+    public void setUp() {
+        RatingConfig config = new RatingConfig();
+        config.setRequestsPerHour(100);
+        config.setBurstSize(50);
+        config.setThrottleMaxBuckets(2 * USERS);
+        throttler = new RatingThrottler(config);
+        legacyThrottler = new LegacyThrottler(config);
+
+        long now = System.currentTimeMillis();
+        userIds = new String[USERS];
+        for (int i = 0; i < USERS; i++) {
+            userIds[i] = "user-" + i;
+            throttler.allowRequest(userIds[i], now);
+            legacyThrottler.buckets.put(userIds[i], new TokenBucket(50, 100, now));
+        }
+    }
+
+    @Benchmark
+    public boolean caffeine() {
+        return throttler.allowRequest(nextUser());
+    }
+
+    @Benchmark
+    public boolean legacy() {
+        return legacyThrottler.allowRequest(nextUser(), System.currentTimeMillis());
+    }
+
+    private String nextUser() {
+        return userIds[next++ & (USERS - 1)];
+    }
+
+    // Implementación anterior: barrido O(n) de los buckets en cada petición
+    static class LegacyThrottler {
+        final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+        private final RatingConfig config;
+
+        LegacyThrottler(RatingConfig config) {
+            this.config = config;
+        }
+
+        boolean allowRequest(String userId, long currentTimeMillis) {
+            TokenBucket bucket = buckets.computeIfAbsent(userId,
+                k -> new TokenBucket(config.getBurstSize(), config.getRequestsPerHour(), currentTimeMillis));
+            long oneHourAgo = currentTimeMillis - TimeUnit.HOURS.toMillis(1);
+            buckets.entrySet().removeIf(entry -> entry.getValue().getLastRefillTimestamp() < oneHourAgo);
+            return bucket.tryConsume(currentTimeMillis);
+        }
+    }
+
+}
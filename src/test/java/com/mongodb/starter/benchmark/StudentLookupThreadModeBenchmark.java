@@ -0,0 +1,121 @@
+package com.mongodb.starter.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.mongodb.starter.configuration.OutboundHttpConfig;
+import com.mongodb.starter.configuration.OutboundHttpProperties;
+import com.mongodb.starter.student.StudentProfileCacheConfig;
+import com.mongodb.starter.student.StudentProfileService;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+/*
+ * Modo de ejecución de create con E/S bloqueante real: cada petición consulta el nombre del estudiante con
+ * StudentProfileService (sin caché) y el RestTemplate de OutboundHttpConfig contra un servidor HTTP local que
+ * responde tras studentServiceMs. Compara el pool de 200 hilos de plataforma de Tomcat con un hilo virtual por
+ * petición, con 400 clientes concurrentes y dos tamaños del pool de conexiones al servicio de estudiantes
+ * (50 es el valor por defecto y deja como mucho 50 consultas en curso, con hilos de sobra en ambos modos).
+ * Los números solo valen en una máquina con varios núcleos: con uno, el cuello de botella es la CPU.
+ *
+ * mvn -P benchmark verify -Dbenchmark.include=StudentLookupThreadModeBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgs = "-Xmx1g")
+@Threads(400)
+public class StudentLookupThreadModeBenchmark {
+
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final byte[] STUDENT = "{\"contactInformation\":{\"name\":\"Ana\"}}".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"platform", "virtual"})
+    public String mode;
+
+    @Param({"50", "400"})
+    public int studentMaxConnections;
+
+    @Param({"20"})
+    public long studentServiceMs;
+
+    private DisposableServer studentServer;
+    private ConnectionProvider connectionProvider;
+    private StudentProfileService studentProfileService;
+    private ExecutorService requestExecutor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Servidor no bloqueante: el retardo no ocupa hilos y no limita a ninguno de los dos modos
+        studentServer = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .route(routes -> routes.get("/api/v1/students/me", (request, response) -> Mono.delay(Duration.ofMillis(studentServiceMs))
+                        .then(response.header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                                .sendByteArray(Mono.just(STUDENT))
+                                .then())))
+                .bindNow();
+        String studentUrl = "http://localhost:" + studentServer.port() + "/api/v1/students/me";
+
+        OutboundHttpProperties properties = new OutboundHttpProperties();
+        properties.getStudent().setMaxConnections(studentMaxConnections);
+        properties.getStudent().setPendingAcquireMaxCount(1000);
+        properties.getStudent().setResponseTimeout(Duration.ofSeconds(10));
+        properties.setPendingAcquireTimeout(Duration.ofSeconds(10));
+        OutboundHttpConfig outbound = new OutboundHttpConfig(properties);
+        ReflectionTestUtils.setField(outbound, "studentServiceUrl", studentUrl);
+        ReflectionTestUtils.setField(outbound, "coursesURL", "http://courses/");
+        ReflectionTestUtils.setField(outbound, "authUrl", "http://auth/");
+        connectionProvider = outbound.outboundConnectionProvider();
+
+        StudentProfileCacheConfig cacheConfig = new StudentProfileCacheConfig();
+        cacheConfig.setEnabled(false);
+        boolean virtual = "virtual".equals(mode);
+        studentProfileService = new StudentProfileService(outbound.restTemplate(connectionProvider), cacheConfig, virtual);
+        ReflectionTestUtils.setField(studentProfileService, "studentServiceUrl", studentUrl);
+
+        requestExecutor = virtual
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        requestExecutor.shutdownNow();
+        studentProfileService.shutdown();
+        connectionProvider.dispose();
+        studentServer.disposeNow();
+    }
+
+    @Benchmark
+    public String createRatingLookup() throws InterruptedException, ExecutionException {
+        return requestExecutor.submit(() -> studentProfileService.findStudentName("user", "Bearer token")).get();
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.mongodb.starter.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mongodb.starter.rating.TokenBucket;
+
+/*
+ * Un mismo usuario desde muchas conexiones: todos los hilos compiten por un único bucket.
+ * Compara TokenBucket (CAS sobre un AtomicLong) con la versión anterior con synchronized.
+ * "refilling" recarga casi tanto como se consume; "exhausted" mide el caso de usuario ya limitado.
+ *
+ * mvn -P benchmark verify -Dbenchmark.include="TokenBucketBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class TokenBucketBenchmark {
+
+    @Param({"refilling", "exhausted"})
+    private String scenario;
+
+    private TokenBucket lockFree;
+    private SynchronizedTokenBucket synchronizedBucket;
+
+    @Setup
+    public void setUp() {
+        // Con 8M por hora se recargan ~2,2 tokens por ms; con 0 el bucket se agota tras el burst
+        long requestsPerHour = "refilling".equals(scenario) ? 8_000_000 : 0;
+        long now = System.currentTimeMillis();
+        lockFree = new TokenBucket(1000, requestsPerHour, now);
+        synchronizedBucket = new SynchronizedTokenBucket(1000, requestsPerHour, now);
+    }
+
+    @Benchmark
+    public boolean lockFree() {
+        return lockFree.tryConsume(System.currentTimeMillis());
+    }
+
+    @Benchmark
+    public boolean synchronizedBucket() {
+        return synchronizedBucket.tryConsume(System.currentTimeMillis());
+    }
+
+    // Implementación anterior: double + long protegidos por el monitor del bucket
+    static class SynchronizedTokenBucket {
+        private final double capacity;
+        private final double refillRate;
+        private double tokens;
+        private long lastRefillTimestamp;
+
+        SynchronizedTokenBucket(long burstSize, long requestsPerHour, long initialTimestamp) {
+            this.capacity = Math.max(burstSize, requestsPerHour);
+            this.refillRate = (double) requestsPerHour / (3600.0 * 1000.0);
+            this.tokens = burstSize;
+            this.lastRefillTimestamp = initialTimestamp;
+        }
+
+        synchronized boolean tryConsume(long currentTimeMillis) {
+            long elapsedMillis = currentTimeMillis - lastRefillTimestamp;
+            if (elapsedMillis > 0) {
+                if (elapsedMillis >= TimeUnit.HOURS.toMillis(1)) {
+                    tokens = capacity;
+                } else {
+                    tokens = Math.min(capacity, tokens + elapsedMillis * refillRate);
+                }
+                lastRefillTimestamp = currentTimeMillis;
+            }
+            if (tokens >= 1.0) {
+                tokens--;
+                return true;
+            }
+            return false;
+        }
+    }
+
+}
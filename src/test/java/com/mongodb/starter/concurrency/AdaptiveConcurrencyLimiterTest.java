@@ -0,0 +1,177 @@
+package com.mongodb.starter.concurrency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.mongodb.MongoTimeoutException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletResponse;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldShedWritesBeforeReads() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10);
+
+        // writeShare 0.75: las escrituras ocupan como mucho 7 de 10; las lecturas pueden llenar el resto
+        for (int i = 0; i < 7; i++) {
+            assertTrue(limiter.tryAcquire(true));
+        }
+        assertFalse(limiter.tryAcquire(true));
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire(false));
+        }
+        assertFalse(limiter.tryAcquire(false));
+
+        assertEquals(1.0, limiter.getRejectedWrites());
+        assertEquals(1.0, limiter.getRejectedReads());
+        assertEquals(10, limiter.getInFlight());
+        assertEquals(1.0, meterRegistry.get("rating.concurrency.rejected").tag("operation", "write").counter().count());
+    }
+
+    @Test
+    void shouldGrowWhileLatencyIsStableAndSaturated() {
+        AdaptiveConcurrencyLimiter limiter = limiter(20);
+
+        for (int i = 0; i < 200; i++) {
+            saturate(limiter);
+            limiter.release(FAST, false);
+        }
+
+        assertTrue(limiter.getLimit() > 20, "limit " + limiter.getLimit());
+    }
+
+    @Test
+    void shouldShrinkWhenMongoSlowsDown() {
+        AdaptiveConcurrencyLimiter limiter = limiter(100);
+        for (int i = 0; i < 100; i++) {
+            limiter.onMongoSample(FAST);
+        }
+
+        for (int i = 0; i < 50; i++) {
+            limiter.onMongoSample(SLOW);
+            assertTrue(limiter.tryAcquire(false));
+            limiter.release(FAST, false);
+        }
+
+        assertTrue(limiter.getLimit() < 60, "limit " + limiter.getLimit());
+    }
+
+    @Test
+    void shouldBackOffOnOverloadButNotBelowMinimum() {
+        AdaptiveConcurrencyLimiter limiter = limiter(20);
+
+        assertTrue(limiter.tryAcquire(true));
+        limiter.release(FAST, true);
+        assertEquals(18.0, limiter.getLimit(), 1e-9);
+
+        for (int i = 0; i < 100; i++) {
+            limiter.backoff();
+        }
+        assertEquals(8.0, limiter.getLimit(), 1e-9);
+    }
+
+    @Test
+    void filterShouldRejectWithServiceUnavailableWhenFull() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(10);
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire(false);
+        }
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(limiter);
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/v1/course/c1/ratings/"), response, chain);
+
+        assertEquals(503, response.getStatus());
+        assertEquals("1", response.getHeader("Retry-After"));
+        assertEquals(null, chain.getRequest());
+        assertEquals(10, limiter.getInFlight());
+    }
+
+    @Test
+    void filterShouldNotBackOffOnServiceUnavailableOrClientErrors() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = mock(AdaptiveConcurrencyLimiter.class);
+        when(limiter.tryAcquire(anyBoolean())).thenReturn(true);
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(limiter);
+
+        // Feature desactivada o fallback del circuit breaker: 503 escrito por la aplicación
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/v1/course/c1/ratings/"), new MockHttpServletResponse(),
+                (request, response) -> ((HttpServletResponse) response).setStatus(503));
+        assertThrows(IllegalArgumentException.class, () -> filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/course/c1/ratings/"),
+                new MockHttpServletResponse(), (request, response) -> {
+                    throw new IllegalArgumentException("bad cursor");
+                }));
+
+        verify(limiter, times(2)).release(anyLong(), eq(false));
+        verify(limiter, never()).backoff();
+    }
+
+    @Test
+    void filterShouldBackOffWhenMongoConnectionsRunOut() {
+        AdaptiveConcurrencyLimiter limiter = mock(AdaptiveConcurrencyLimiter.class);
+        when(limiter.tryAcquire(anyBoolean())).thenReturn(true);
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(limiter);
+
+        assertThrows(DataAccessResourceFailureException.class, () -> filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/course/c1/ratings/"),
+                new MockHttpServletResponse(), (request, response) -> {
+                    throw new DataAccessResourceFailureException("Timed out", new MongoTimeoutException("Timed out waiting for a connection"));
+                }));
+
+        verify(limiter).release(anyLong(), eq(true));
+    }
+
+    @Test
+    void filterShouldHoldAsyncExportsUntilTheyComplete() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(20);
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(limiter);
+        MockHttpServletRequest export = new MockHttpServletRequest("GET", "/api/v1/course/c1/ratings/export");
+        export.setAsyncSupported(true);
+
+        filter.doFilter(export, new MockHttpServletResponse(), (request, response) -> request.startAsync());
+        assertEquals(1, limiter.getInFlight());
+
+        ((MockAsyncContext) export.getAsyncContext()).complete();
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(20.0, limiter.getLimit(), 1e-9);
+    }
+
+    private void saturate(AdaptiveConcurrencyLimiter limiter) {
+        while (limiter.getInFlight() < limiter.getLimit() - 1) {
+            limiter.tryAcquire(false);
+        }
+        limiter.tryAcquire(false);
+    }
+
+    private AdaptiveConcurrencyLimiter limiter(int initialLimit) {
+        ConcurrencyLimitProperties properties = new ConcurrencyLimitProperties();
+        properties.setInitialLimit(initialLimit);
+        return new AdaptiveConcurrencyLimiter(properties, meterRegistry);
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.mongodb.starter.configuration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.index.CompoundIndexDefinition;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class MongoIndexInitializerTest {
+
+    private final IndexDefinition courseDate = new CompoundIndexDefinition(
+        new Document("courseId", 1).append("date", -1).append("_id", -1)).named("courseId_date_desc");
+
+    private final IndexDefinition userId = new Index().on("userId", Direction.ASC).named("userId");
+
+    // El modo estricto comprueba al crear los singletons, antes de que el servidor web acepte peticiones
+    @Test
+    void shouldCheckIndexesBeforeStartupCompletesInStrictMode() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.getConverter()).thenThrow(new IllegalStateException("Mongo unavailable"));
+        MongoIndexInitializer initializer = new MongoIndexInitializer(mongoTemplate);
+        ReflectionTestUtils.setField(initializer, "strict", true);
+
+        assertThrows(IllegalStateException.class, initializer::afterSingletonsInstantiated);
+    }
+
+    @Test
+    void shouldLeaveLenientModeToTheBackgroundThread() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        MongoIndexInitializer initializer = new MongoIndexInitializer(mongoTemplate);
+
+        initializer.afterSingletonsInstantiated();
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void shouldReportIndexesThatDoNotExist() {
+        List<IndexInfo> existing = List.of(info("_id_", IndexField.create("_id", Direction.ASC)));
+
+        List<IndexDefinition> missing = MongoIndexInitializer.missingIndexes(List.of(courseDate, userId), existing);
+
+        assertEquals(List.of(courseDate, userId), missing);
+    }
+
+    @Test
+    void shouldMatchExistingIndexesByKeysRegardlessOfName() {
+        List<IndexInfo> existing = List.of(
+            info("manually_created", IndexField.create("courseId", Direction.ASC),
+                IndexField.create("date", Direction.DESC), IndexField.create("_id", Direction.DESC)),
+            info("userId_1", IndexField.create("userId", Direction.ASC)));
+
+        assertTrue(MongoIndexInitializer.missingIndexes(List.of(courseDate, userId), existing).isEmpty());
+    }
+
+    @Test
+    void shouldNotAcceptIndexWithDifferentDirection() {
+        List<IndexInfo> existing = List.of(
+            info("courseId_date_asc", IndexField.create("courseId", Direction.ASC),
+                IndexField.create("date", Direction.ASC), IndexField.create("_id", Direction.ASC)));
+
+        assertEquals(List.of(courseDate), MongoIndexInitializer.missingIndexes(List.of(courseDate), existing));
+    }
+
+    private IndexInfo info(String name, IndexField... fields) {
+        return new IndexInfo(List.of(fields), name, false, false, "");
+    }
+
+}
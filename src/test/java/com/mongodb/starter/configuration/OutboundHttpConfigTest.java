@@ -0,0 +1,107 @@
+package com.mongodb.starter.configuration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+class OutboundHttpConfigTest {
+
+    @Test
+    void shouldApplyPerDestinationPoolLimits() {
+        OutboundHttpProperties properties = new OutboundHttpProperties();
+        properties.getStudent().setMaxConnections(30);
+        properties.getCourses().setMaxConnections(10);
+        properties.getAuth().setMaxConnections(5);
+
+        OutboundHttpConfig config = new OutboundHttpConfig(properties);
+        ReflectionTestUtils.setField(config, "studentServiceUrl", "https://students.example.com/api/v1/students/me");
+        ReflectionTestUtils.setField(config, "coursesURL", "http://courses:8081/api/v1/courses/");
+        ReflectionTestUtils.setField(config, "authUrl", "http://auth/api/v1/users/");
+
+        ConnectionProvider provider = config.outboundConnectionProvider();
+        try {
+            Map<SocketAddress, Integer> limits = provider.maxConnectionsPerHost();
+            assertEquals(30, limits.get(InetSocketAddress.createUnresolved("students.example.com", 443)));
+            assertEquals(10, limits.get(InetSocketAddress.createUnresolved("courses", 8081)));
+            assertEquals(5, limits.get(InetSocketAddress.createUnresolved("auth", 80)));
+        } finally {
+            provider.dispose();
+        }
+    }
+
+    @Test
+    void shouldMatchIpLiteralsAsReactorNettyConnectsToThem() {
+        OutboundHttpProperties properties = new OutboundHttpProperties();
+        properties.getStudent().setMaxConnections(30);
+
+        OutboundHttpConfig config = new OutboundHttpConfig(properties);
+        ReflectionTestUtils.setField(config, "studentServiceUrl", "http://10.0.0.7:8080/api/v1/students/me");
+        ReflectionTestUtils.setField(config, "coursesURL", "http://courses/");
+        ReflectionTestUtils.setField(config, "authUrl", "http://auth/");
+
+        ConnectionProvider provider = config.outboundConnectionProvider();
+        try {
+            assertEquals(30, provider.maxConnectionsPerHost().get(new InetSocketAddress("10.0.0.7", 8080)));
+        } finally {
+            provider.dispose();
+        }
+    }
+
+    @Test
+    void shouldNotCloseReusedConnectionsUnderConcurrency() throws Exception {
+        DisposableServer server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes.get("/students/me", (request, response) -> Mono.delay(Duration.ofMillis(5))
+                        .then(response.sendString(Mono.just("Ana")).then())))
+                .bindNow();
+        String url = "http://localhost:" + server.port() + "/students/me";
+        OutboundHttpConfig config = new OutboundHttpConfig(new OutboundHttpProperties());
+        ReflectionTestUtils.setField(config, "studentServiceUrl", url);
+        ReflectionTestUtils.setField(config, "coursesURL", "http://courses/");
+        ReflectionTestUtils.setField(config, "authUrl", "http://auth/");
+        ConnectionProvider provider = config.outboundConnectionProvider();
+        RestTemplate restTemplate = config.restTemplate(provider);
+
+        ExecutorService clients = Executors.newFixedThreadPool(10);
+        try {
+            List<Future<String>> responses = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                responses.add(clients.submit(() -> restTemplate.getForObject(url, String.class)));
+            }
+            for (Future<String> response : responses) {
+                assertEquals("Ana", response.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            clients.shutdownNow();
+            provider.dispose();
+            server.disposeNow();
+        }
+    }
+
+    @Test
+    void shouldIgnoreUrlsWithoutHost() {
+        assertNull(OutboundHttpConfig.remoteAddress("/relative/path"));
+        assertNull(OutboundHttpConfig.remoteAddress("not a url"));
+    }
+
+}
@@ -0,0 +1,231 @@
+package com.mongodb.starter.rating;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.mongodb.client.result.UpdateResult;
+
+@ExtendWith(MockitoExtension.class)
+class CourseRatingAggregatorTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private CourseRatingAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        aggregator = new CourseRatingAggregator(mongoTemplate);
+    }
+
+    @Test
+    void shouldIncrementCountSumAndHistogramWhenRatingAdded() {
+        aggregateExists();
+        aggregator.ratingAdded("course1", 4);
+
+        Document inc = capturedInc();
+        assertEquals(1, inc.get("count"));
+        assertEquals(4, inc.get("sum"));
+        assertEquals(1, inc.get("histogram.4"));
+        assertEquals(1, inc.get("version"));
+    }
+
+    @Test
+    void shouldDecrementCountSumAndHistogramWhenRatingRemoved() {
+        aggregateExists();
+        aggregator.ratingRemoved("course1", 2);
+
+        Document inc = capturedInc();
+        assertEquals(-1, inc.get("count"));
+        assertEquals(-2, inc.get("sum"));
+        assertEquals(-1, inc.get("histogram.2"));
+    }
+
+    @Test
+    void shouldMoveHistogramBucketWhenStarsChange() {
+        aggregateExists();
+        aggregator.ratingChanged("course1", 1, 5);
+
+        Document inc = capturedInc();
+        assertEquals(4, inc.get("sum"));
+        assertEquals(-1, inc.get("histogram.1"));
+        assertEquals(1, inc.get("histogram.5"));
+        assertEquals(null, inc.get("count"));
+    }
+
+    @Test
+    void shouldOnlyBumpVersionWhenStarsDoNotChange() {
+        aggregateExists();
+        aggregator.ratingChanged("course1", 3, 3);
+
+        Document inc = capturedInc();
+        assertEquals(1, inc.get("version"));
+        assertEquals(null, inc.get("sum"));
+        assertEquals(null, inc.get("histogram.3"));
+    }
+
+    @Test
+    void shouldKeepVersionIncreasingWhenRebuilt() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Rating.class), eq(Document.class)))
+            .thenReturn(new AggregationResults<>(List.of(
+                new Document("_id", new Document("courseId", "course1").append("rating", 5)).append("count", 2)),
+                new Document()));
+
+        aggregator.rebuild("course1");
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class),
+            eq(CourseRatingAggregate.class));
+        verify(mongoTemplate, never()).save(any(CourseRatingAggregate.class));
+        Document updateObject = update.getValue().getUpdateObject();
+        assertEquals(1, updateObject.get("$inc", Document.class).get("version"));
+        assertEquals(2L, updateObject.get("$set", Document.class).get("count"));
+        assertEquals(10L, updateObject.get("$set", Document.class).get("sum"));
+    }
+
+    @Test
+    void shouldCountAgainWhenCourseChangesDuringRebuild() {
+        CourseRatingAggregate current = new CourseRatingAggregate("course1");
+        current.setVersion(7);
+        when(mongoTemplate.findById("course1", CourseRatingAggregate.class)).thenReturn(current);
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Rating.class), eq(Document.class)))
+            .thenReturn(new AggregationResults<>(List.of(), new Document()));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+            eq(CourseRatingAggregate.class)))
+            .thenThrow(new DuplicateKeyException("E11000"))
+            .thenReturn(current);
+
+        aggregator.rebuild("course1");
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).findAndModify(query.capture(), any(Update.class), any(FindAndModifyOptions.class),
+            eq(CourseRatingAggregate.class));
+        verify(mongoTemplate, times(2)).aggregate(any(Aggregation.class), eq(Rating.class), eq(Document.class));
+        // Solo se sobrescribe el agregado si nadie lo cambió desde que se leyó su version
+        assertTrue(query.getValue().getQueryObject().toJson().contains("\"version\": 7"));
+    }
+
+    @Test
+    void shouldCountTheCourseInsteadOfUpsertingWhenItHasNoAggregate() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(CourseRatingAggregate.class)))
+            .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Rating.class), eq(Document.class)))
+            .thenReturn(new AggregationResults<>(List.of(
+                new Document("_id", new Document("courseId", "course1").append("rating", 3)).append("count", 4)),
+                new Document()));
+
+        aggregator.ratingRemoved("course1", 2);
+
+        // Un $inc con upsert habría creado el curso con count -1
+        verify(mongoTemplate, never()).upsert(any(Query.class), any(Update.class), eq(CourseRatingAggregate.class));
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class),
+            eq(CourseRatingAggregate.class));
+        assertEquals(4L, update.getValue().getUpdateObject().get("$set", Document.class).get("count"));
+    }
+
+    @Test
+    void shouldZeroCoursesWithoutRatingsInsteadOfDeletingThem() {
+        when(mongoTemplate.find(any(Query.class), eq(CourseRatingAggregate.class)))
+            .thenReturn(List.of(stored("course1", 3, 1, 4), stored("course2", 9, 2, 7)));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Rating.class), eq(Document.class)))
+            .thenReturn(new AggregationResults<>(List.of(
+                new Document("_id", new Document("courseId", "course1").append("rating", 4)).append("count", 1)),
+                new Document()));
+
+        aggregator.rebuildAll();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(2)).upsert(query.capture(), update.capture(), eq(CourseRatingAggregate.class));
+        verify(mongoTemplate, never()).remove(any(Query.class), eq(CourseRatingAggregate.class));
+        int course2 = query.getAllValues().get(0).getQueryObject().get("_id").equals("course2") ? 0 : 1;
+        Document updateObject = update.getAllValues().get(course2).getUpdateObject();
+        assertEquals(0L, updateObject.get("$set", Document.class).get("count"));
+        // version sigue creciendo: un ETag ya emitido no vuelve a corresponder a otro contenido
+        assertEquals(1, updateObject.get("$inc", Document.class).get("version"));
+        assertTrue(query.getAllValues().get(course2).getQueryObject().toJson().contains("\"version\": 9"));
+    }
+
+    @Test
+    void shouldCountAgainCoursesWrittenDuringRebuildAll() {
+        CourseRatingAggregate course1 = stored("course1", 3, 1, 4);
+        when(mongoTemplate.find(any(Query.class), eq(CourseRatingAggregate.class))).thenReturn(List.of(course1));
+        when(mongoTemplate.findById("course1", CourseRatingAggregate.class)).thenReturn(stored("course1", 4, 2, 9));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Rating.class), eq(Document.class)))
+            .thenReturn(new AggregationResults<>(List.of(
+                new Document("_id", new Document("courseId", "course1").append("rating", 4)).append("count", 1)),
+                new Document()));
+        // Una valoración llegó entre la lectura de versiones y la escritura: version ya no es 3
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(CourseRatingAggregate.class)))
+            .thenThrow(new DuplicateKeyException("E11000"));
+
+        aggregator.rebuildAll();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).findAndModify(query.capture(), any(Update.class), any(FindAndModifyOptions.class),
+            eq(CourseRatingAggregate.class));
+        assertTrue(query.getValue().getQueryObject().toJson().contains("\"version\": 4"));
+    }
+
+    @Test
+    void shouldReadMeanFromAggregate() {
+        CourseRatingAggregate aggregate = new CourseRatingAggregate("course1");
+        aggregate.setCount(2);
+        aggregate.setSum(3);
+        when(mongoTemplate.findById("course1", CourseRatingAggregate.class)).thenReturn(aggregate);
+
+        assertEquals(1.5, aggregator.mean("course1"));
+    }
+
+    @Test
+    void shouldReturnZeroMeanWhenCourseHasNoAggregate() {
+        when(mongoTemplate.findById("course1", CourseRatingAggregate.class)).thenReturn(null);
+
+        assertEquals(0.0, aggregator.mean("course1"));
+    }
+
+    private void aggregateExists() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(CourseRatingAggregate.class)))
+            .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+    }
+
+    private Document capturedInc() {
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(CourseRatingAggregate.class));
+        verify(mongoTemplate, never()).upsert(any(Query.class), any(Update.class), eq(CourseRatingAggregate.class));
+        return update.getValue().getUpdateObject().get("$inc", Document.class);
+    }
+
+    private static CourseRatingAggregate stored(String courseId, long version, long count, long sum) {
+        CourseRatingAggregate aggregate = new CourseRatingAggregate(courseId);
+        aggregate.setVersion(version);
+        aggregate.setCount(count);
+        aggregate.setSum(sum);
+        return aggregate;
+    }
+
+}
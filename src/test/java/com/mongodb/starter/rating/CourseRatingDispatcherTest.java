@@ -0,0 +1,119 @@
+package com.mongodb.starter.rating;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.client.reactive.MockClientHttpRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+@ExtendWith(MockitoExtension.class)
+class CourseRatingDispatcherTest {
+
+    @Mock
+    private CourseRatingOutbox outbox;
+
+    @Mock
+    private CourseRatingAggregator courseRatingAggregator;
+
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final AtomicReference<HttpStatus> status = new AtomicReference<>(HttpStatus.OK);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CourseSyncConfig config = new CourseSyncConfig();
+
+    private CourseRatingDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        WebClient webClient = WebClient.builder().exchangeFunction(request -> {
+            MockClientHttpRequest captured = new MockClientHttpRequest(request.method(), request.url());
+            request.writeTo(captured, ExchangeStrategies.withDefaults()).block();
+            requests.add(request.method() + " " + request.url() + " v" + request.headers().getFirst(CourseRatingDispatcher.VERSION_HEADER)
+                + " " + captured.getBodyAsString().block());
+            return Mono.just(ClientResponse.create(status.get()).build());
+        }).build();
+        config.setBatchSize(10);
+        dispatcher = new CourseRatingDispatcher(outbox, courseRatingAggregator, config, webClient, meterRegistry);
+        ReflectionTestUtils.setField(dispatcher, "coursesURL", "http://courses/");
+        ReflectionTestUtils.setField(dispatcher, "ratingUrl", "/rating");
+    }
+
+    @Test
+    void shouldSendAggregateMeanWithVersionAndMarkDispatched() {
+        CourseRatingOutboxEntry entry = entry("course1", 7, 0);
+        when(outbox.claim(anyString(), eq(10), anyLong())).thenReturn(List.of(entry));
+        when(courseRatingAggregator.findAll(List.of("course1"))).thenReturn(Map.of("course1", aggregate("course1", 2, 9)));
+
+        assertEquals(1, dispatcher.dispatchBatch());
+
+        assertEquals(List.of("PATCH http://courses/course1/rating v7 {\"rating\":4.5}"), requests);
+        verify(outbox).markDispatched(eq(entry), anyString(), eq(config.getIntervalMs()));
+        verify(outbox, never()).markFailed(eq(entry), anyString(), anyLong(), anyString());
+    }
+
+    @Test
+    void shouldRescheduleFailedCourseWithBackoff() {
+        status.set(HttpStatus.SERVICE_UNAVAILABLE);
+        CourseRatingOutboxEntry entry = entry("course1", 3, 2);
+        when(outbox.claim(anyString(), anyInt(), anyLong())).thenReturn(List.of(entry));
+        when(courseRatingAggregator.findAll(List.of("course1"))).thenReturn(Map.of());
+
+        dispatcher.dispatchBatch();
+
+        ArgumentCaptor<Long> backoff = ArgumentCaptor.forClass(Long.class);
+        verify(outbox).markFailed(eq(entry), anyString(), backoff.capture(), anyString());
+        verify(outbox, never()).markDispatched(eq(entry), anyString(), anyLong());
+        // Tercer intento: entre la mitad y el total de 4 x backoff-initial-ms
+        assertTrue(backoff.getValue() >= 2000 && backoff.getValue() <= 4000, "backoff was " + backoff.getValue());
+        assertEquals(1, meterRegistry.get("rating.course_sync.failures").counter().count());
+    }
+
+    @Test
+    void shouldCapBackoff() {
+        for (int attempt = 0; attempt < 64; attempt++) {
+            assertTrue(dispatcher.backoffMs(attempt) <= config.getBackoffMaxMs());
+        }
+        assertTrue(dispatcher.backoffMs(40) >= config.getBackoffMaxMs() / 2);
+    }
+
+    private CourseRatingOutboxEntry entry(String courseId, long version, int attempts) {
+        CourseRatingOutboxEntry entry = new CourseRatingOutboxEntry();
+        entry.setCourseId(courseId);
+        entry.setVersion(version);
+        entry.setPending(true);
+        entry.setAttempts(attempts);
+        return entry;
+    }
+
+    private CourseRatingAggregate aggregate(String courseId, long count, long sum) {
+        CourseRatingAggregate aggregate = new CourseRatingAggregate(courseId);
+        aggregate.setCount(count);
+        aggregate.setSum(sum);
+        return aggregate;
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.mongodb.starter.rating;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+@ExtendWith(MockitoExtension.class)
+class CourseRatingOutboxTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Test
+    void shouldInsertOneChangePerWriteInsteadOfUpdatingTheCourseEntry() {
+        new CourseRatingOutbox(mongoTemplate).courseChanged("course1");
+
+        ArgumentCaptor<CourseRatingChange> change = ArgumentCaptor.forClass(CourseRatingChange.class);
+        verify(mongoTemplate).insert(change.capture());
+        assertEquals("course1", change.getValue().getCourseId());
+        verify(mongoTemplate, never()).upsert(any(Query.class), any(Update.class), eq(CourseRatingOutboxEntry.class));
+    }
+
+    @Test
+    void shouldFoldChangesIntoOneEntryPerCourse() {
+        Instant first = Instant.parse("2024-12-01T10:00:00Z");
+        List<CourseRatingChange> changes = List.of(change("c1", "course1", first.plusSeconds(5)), change("c2", "course2", first),
+            change("c3", "course1", first));
+        when(mongoTemplate.find(any(Query.class), eq(CourseRatingChange.class))).thenReturn(changes);
+
+        assertEquals(3, new CourseRatingOutbox(mongoTemplate).collectChanges(10));
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).upsert(eq(Query.query(Criteria.where("_id").is("course1"))),
+            update.capture(), eq(CourseRatingOutboxEntry.class));
+        Document course1 = update.getValue().getUpdateObject();
+        assertEquals(2L, course1.get("$inc", Document.class).get("version"));
+        assertEquals(first, course1.get("$min", Document.class).get("pendingSince"));
+
+        ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(removed.capture(), eq(CourseRatingChange.class));
+        assertEquals(List.of("c1", "c2", "c3"), removed.getValue().getQueryObject().get("_id", Document.class).get("$in"));
+    }
+
+    private static CourseRatingChange change(String id, String courseId, Instant createdAt) {
+        CourseRatingChange change = CourseRatingChange.of(courseId, createdAt);
+        change.setId(id);
+        return change;
+    }
+
+}
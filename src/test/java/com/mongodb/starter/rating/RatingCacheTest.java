@@ -0,0 +1,151 @@
+package com.mongodb.starter.rating;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.util.unit.DataSize;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.mongodb.starter.configuration.CacheConfig;
+import com.mongodb.starter.exceptions.ResourceNotFoundException;
+
+@ExtendWith(MockitoExtension.class)
+class RatingCacheTest {
+
+    @Mock
+    private RatingRepository ratingRepository;
+
+    @Mock
+    private RatingThrottler ratingThrottler;
+
+    @Mock
+    private CourseRatingAggregator courseRatingAggregator;
+
+    @Mock
+    private CourseRatingOutbox courseRatingOutbox;
+
+    private AnnotationConfigApplicationContext context;
+
+    private CacheManager cacheManager;
+
+    private RatingService ratingService;
+
+    // El CacheManager real de CacheConfig (Caffeine, tamaños por defecto), no un mapa sin límites
+    @BeforeEach
+    void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        // Las mismas conversiones que Spring Boot para "60s" y "64MB"
+        context.getBeanFactory().setConversionService(ApplicationConversionService.getSharedInstance());
+        context.register(CacheConfig.class);
+        context.refresh();
+        cacheManager = context.getBean(CacheManager.class);
+        RatingConfig ratingConfig = new RatingConfig();
+        ratingConfig.setEnabled(true);
+        ratingConfig.setDefaultPageSize(2);
+        ratingConfig.setMaxPageSize(3);
+        ratingService = new RatingService(ratingRepository, ratingConfig, ratingThrottler, courseRatingAggregator,
+            new RatingCache(cacheManager), courseRatingOutbox,
+            new RatingTransactions(TransactionOperations.withoutTransaction(), 1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void shouldServeRepeatedLookupsFromCacheUntilDeleted() {
+        Rating rating = rating("course1", LocalDateTime.of(2024, 12, 1, 10, 0));
+        when(ratingRepository.findById(rating.getId())).thenReturn(Optional.of(rating));
+        when(ratingRepository.deleteOwnedRating(rating.getId(), "user1", "course1")).thenReturn(rating);
+        when(ratingThrottler.check(any(), eq("user1"), any())).thenReturn(ThrottleDecision.ALLOWED);
+
+        ratingService.findRatingById(rating.getId());
+        ratingService.findRatingById(rating.getId());
+        verify(ratingRepository, times(1)).findById(rating.getId());
+
+        ratingService.deleteRating(rating.getId(), "user1", "course1");
+        when(ratingRepository.findById(rating.getId())).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> ratingService.findRatingById(rating.getId()));
+        verify(ratingRepository, times(2)).findById(rating.getId());
+    }
+
+    @Test
+    void shouldReuseSerializedHeadPageUntilCourseVersionChanges() {
+        when(ratingRepository.findFirstRatingsPageByCourse(eq("course1"), any(Pageable.class)))
+            .thenReturn(List.of(rating("course1", LocalDateTime.of(2024, 12, 1, 10, 0))));
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        AtomicInteger encoded = new AtomicInteger();
+
+        SerializedRatingPage first = ratingService.findSerializedHeadPage("course1", 2, 1, page -> {
+            encoded.incrementAndGet();
+            return SerializedRatingPage.encode(1, page, objectMapper);
+        });
+        SerializedRatingPage again = ratingService.findSerializedHeadPage("course1", 2, 1, page -> {
+            encoded.incrementAndGet();
+            return SerializedRatingPage.encode(1, page, objectMapper);
+        });
+        // Una escritura subió la versión del curso: la entrada anterior ya no sirve
+        SerializedRatingPage changed = ratingService.findSerializedHeadPage("course1", 2, 2, page -> {
+            encoded.incrementAndGet();
+            return SerializedRatingPage.encode(2, page, objectMapper);
+        });
+
+        assertSame(first, again);
+        assertEquals(2, changed.getVersion());
+        assertEquals(2, encoded.get());
+    }
+
+    @Test
+    void shouldBoundSerializedPagesByWeight() {
+        CaffeineCache pages = (CaffeineCache) cacheManager.getCache(RatingCache.SERIALIZED_HEAD_PAGES);
+        Policy.Eviction<Object, Object> eviction = pages.getNativeCache().policy().eviction().orElseThrow();
+
+        assertTrue(eviction.isWeighted());
+        assertEquals(DataSize.ofMegabytes(64).toBytes(), eviction.getMaximum());
+
+        SerializedRatingPage page = SerializedRatingPage.encode(1, new RatingPage(List.of(), null), new ObjectMapper());
+        pages.put("course1:2", page);
+        pages.getNativeCache().cleanUp();
+        assertEquals(page.weight(), eviction.weightedSize().orElseThrow());
+    }
+
+    private Rating rating(String courseId, LocalDateTime date) {
+        Rating rating = new Rating();
+        rating.setId(new ObjectId().toHexString());
+        rating.setDescription("description");
+        rating.setRating(4);
+        rating.setUserId("user1");
+        rating.setCourseId(courseId);
+        rating.setDate(date);
+        return rating;
+    }
+
+}
@@ -51,7 +51,9 @@ import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
     "resilience4j.circuitbreaker.instances.createRating.automaticTransitionFromOpenToHalfOpenEnabled=true",
     "feature.rating.enabled=true",
     "feature.rating.requests-per-hour=100",
-    "feature.rating.burst-size=50"
+    "feature.rating.burst-size=50",
+    // Sin caché de perfiles: cada creación debe llegar al servicio de estudiantes para probar el circuit breaker
+    "student.profile-cache.enabled=false"
 })
 @ActiveProfiles("test")
 @AutoConfigureMockMvc
@@ -32,16 +32,19 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.validation.BeanPropertyBindingResult;
 import org.springframework.validation.Errors;
 import org.springframework.web.client.ResourceAccessException;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mongodb.starter.exceptions.ResourceNotFoundException;
 import com.mongodb.starter.exceptions.ValidationException;
 import com.mongodb.starter.student.ContactInformation;
 import com.mongodb.starter.student.StudentDto;
+import com.mongodb.starter.student.StudentProfileService;
 import com.mongodb.starter.student.UserService;
 import com.mongodb.starter.util.MessageResponse;
 
@@ -68,7 +71,7 @@ public class RatingControllerUnitaryTest {
     private RatingConfig ratingConfig;
 
     @Mock
-    private RestTemplate restTemplate;
+    private StudentProfileService studentProfileService;
 
     private Errors errors;
 
@@ -147,10 +150,10 @@ public class RatingControllerUnitaryTest {
         // Configurar los mocks
         when(ratingConfig.isEnabled()).thenReturn(true);
         when(userService.extractUserId(token)).thenReturn("user");
-        when(restTemplate.exchange(eq(studentServiceUrl), eq(HttpMethod.GET), any(), eq(StudentDto.class)))
-                .thenReturn(new ResponseEntity<>(studentDto, HttpStatus.OK)); // Simulamos el exchange
+        when(studentProfileService.findStudentName("user", token))
+                .thenReturn(studentDto.getContactInformation().getName()); // Simulamos el servicio de estudiantes
         when(ratingService.saveRating(any(Rating.class))).thenReturn(savedRating);
-        when(ratingValidator.validateObject(any())).thenReturn(errors);
+        when(ratingValidator.validateRequest(any())).thenReturn(errors);
 
         // Llamar al método del controlador
         ResponseEntity<Rating> response = ratingController.create(courseId, token, newRating);
@@ -178,14 +181,17 @@ public class RatingControllerUnitaryTest {
         // Mock behavior
         Rating existingRating = constructorRating(ratingId, "Great course!", 5, "user1", courseId, "user");
         when(userService.extractUserId(token)).thenReturn("user1");
-        when(ratingService.findRatingById(ratingId)).thenReturn(existingRating);
+        when(ratingService.deleteRating(ratingId, "user1", courseId)).thenReturn(existingRating);
+        when(ratingService.remainingRequests(RatingConfig.Operation.DELETE, "user1", courseId)).thenReturn(4L);
 
         // Call the method
         ResponseEntity<MessageResponse> response = ratingController.delete(courseId,token,ratingId);
 
         // Assertions
         assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(ratingService, never()).findRatingById(any());
         assertEquals("Rating deleted!", response.getBody().getMessage());
+        assertEquals("4", response.getHeaders().getFirst(RatingController.RATE_LIMIT_REMAINING_HEADER));
 
     }
 
@@ -199,13 +205,13 @@ public class RatingControllerUnitaryTest {
         Errors errors = new BeanPropertyBindingResult(updatedRating, "rating");
 
         when(userService.extractUserId(token)).thenReturn("user1");
-        when(ratingService.findRatingById(ratingId)).thenReturn(existingRating);
-        when(ratingService.updateRating(any(Rating.class), eq(ratingId))).thenReturn(updatedRating);
-        when(ratingValidator.validateObject(any())).thenReturn(errors); 
+        when(ratingService.updateRating(any(Rating.class), eq(ratingId), eq("user1"), eq(courseId))).thenReturn(updatedRating);
+        when(ratingValidator.validateChanges(any())).thenReturn(errors); 
 
         ResponseEntity<Rating> response = ratingController.update(courseId, ratingId, token, updatedRating);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(ratingService, never()).findRatingById(any());
         Rating returnedRating = response.getBody();
         assertNotNull(returnedRating);
         assertEquals("Bueno, tampoco estaba tan mal", returnedRating.getDescription());
@@ -230,9 +236,11 @@ public class RatingControllerUnitaryTest {
     public void testFindRatingByCourse() throws Exception {
 
         Rating rating = constructorRating("rate1","No me ha gustado nada",1,"user1","course1", "user");
-        when(ratingService.findAllRatingsByCourse("course1")).thenReturn((Arrays.asList(rating)));
+        when(ratingService.findCourseAggregate("course1")).thenReturn(new CourseRatingAggregate("course1"));
+        when(ratingService.findRatingsPageByCourse("course1", null, "cursor")).thenReturn(new RatingPage(Arrays.asList(rating), null));
 
-        ResponseEntity<List<Rating>> response = ratingController.findAllByCourse("course1");
+        ResponseEntity<List<Rating>> response = ratingController.findAllByCourse("course1", null, "cursor",
+                new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse()));
         assertEquals(HttpStatus.OK, response.getStatusCode());
         List<Rating> result = response.getBody();
         assertNotNull(result);
@@ -259,8 +267,10 @@ public class RatingControllerUnitaryTest {
         when(userService.extractUserId("Bearer validToken")).thenReturn("userId");
 
         // Simulamos que el servicio de estudiantes no devuelve datos
-        when(restTemplate.exchange(eq(studentServiceUrl), eq(HttpMethod.GET), any(), eq(StudentDto.class)))
-            .thenReturn(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+        when(studentProfileService.findStudentName("userId", "Bearer validToken"))
+            .thenReturn(null);
+        when(ratingValidator.validateRequest(any(Rating.class)))
+            .thenReturn(new BeanPropertyBindingResult(new Rating(), "rating"));
 
         // Llamada al controlador
         ResponseEntity<Rating> response = ratingController.create("courseId", "Bearer validToken", new Rating());
@@ -276,8 +286,10 @@ public class RatingControllerUnitaryTest {
         when(userService.extractUserId("Bearer validToken")).thenReturn("userId");
     
         // Simulamos que se lanza una ResourceAccessException
-        when(restTemplate.exchange(eq(studentServiceUrl), eq(HttpMethod.GET), any(), eq(StudentDto.class)))
+        when(studentProfileService.findStudentName("userId", "Bearer validToken"))
             .thenThrow(new ResourceAccessException("Service Unavailable"));
+        when(ratingValidator.validateRequest(any(Rating.class)))
+            .thenReturn(new BeanPropertyBindingResult(new Rating(), "rating"));
     
         // Verificar que la excepción es lanzada correctamente
         ResourceAccessException exception = assertThrows(ResourceAccessException.class, () -> {
@@ -312,9 +324,9 @@ public class RatingControllerUnitaryTest {
         // Configuración de mocks
         when(ratingConfig.isEnabled()).thenReturn(true);
         when(userService.extractUserId(token)).thenReturn(userId);
-        when(restTemplate.exchange(eq(studentServiceUrl), eq(HttpMethod.GET), any(), eq(StudentDto.class)))
-            .thenReturn(new ResponseEntity<>(studentDto, HttpStatus.OK));
-        when(ratingValidator.validateObject(any(Rating.class)))
+        when(studentProfileService.findStudentName(userId, token))
+            .thenReturn(studentDto.getContactInformation().getName());
+        when(ratingValidator.validateRequest(any(Rating.class)))
             .thenReturn(errors);
         
         // Verificar que se lanza la excepción de validación
@@ -324,6 +336,8 @@ public class RatingControllerUnitaryTest {
         
         // Verificar que el mensaje de validación esté presente en la excepción
         assertTrue(exception.getMessage().contains("Rating must be between 1 and 5"));
+        // Una petición inválida no llega a consultar al servicio de estudiantes
+        verify(studentProfileService, never()).findStudentName(any(), any());
     }
 
 
@@ -343,10 +357,13 @@ public class RatingControllerUnitaryTest {
 
         Rating updateRating = new Rating();
         updateRating.setUserId("differentUserId");
+        Errors errors = new BeanPropertyBindingResult(updateRating, "rating");
         
         // When
         when(userService.extractUserId(TOKEN)).thenReturn(USER_ID);
-        when(ratingService.findRatingById(RATING_ID)).thenReturn(existingRating);
+        when(ratingValidator.validateChanges(updateRating)).thenReturn(errors);
+        when(ratingService.updateRating(updateRating, RATING_ID, USER_ID, COURSE_ID))
+            .thenThrow(new RatingService.RatingOwnershipException("Rating " + RATING_ID + " does not belong to user: " + USER_ID));
         
         // Then
         ResponseEntity<Rating> response = ratingController.update(
@@ -358,8 +375,8 @@ public class RatingControllerUnitaryTest {
         
         assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
         assertNull(response.getBody());
-        verify(ratingService).findRatingById(RATING_ID);
-        verify(ratingService, never()).updateRating(any(), any());
+        verify(ratingService, never()).findRatingById(any());
+        verify(ratingService, never()).updateRating(any(), any(), any(), any());
     }
 
     @Test
@@ -374,13 +391,12 @@ public class RatingControllerUnitaryTest {
         updateRating.setUserId(USER_ID);
         updateRating.setRating(0);
         
-        Errors errors = new BeanPropertyBindingResult(existingRating, "rating");
+        Errors errors = new BeanPropertyBindingResult(updateRating, "rating");
         errors.rejectValue("rating", "invalid.rating", "Rating must be between 1 and 5");
         
         // When
         when(userService.extractUserId(TOKEN)).thenReturn(USER_ID);
-        when(ratingService.findRatingById(RATING_ID)).thenReturn(existingRating);
-        when(ratingValidator.validateObject(existingRating)).thenReturn(errors);
+        when(ratingValidator.validateChanges(updateRating)).thenReturn(errors);
         
         // Then
         ValidationException exception = assertThrows(
@@ -389,9 +405,8 @@ public class RatingControllerUnitaryTest {
         );
         
         assertTrue(exception.getMessage().contains("Rating must be between 1 and 5"));
-        verify(ratingService).findRatingById(RATING_ID);
-        verify(ratingValidator).validateObject(existingRating);
-        verify(ratingService, never()).updateRating(any(), any());
+        verify(ratingValidator).validateChanges(updateRating);
+        verify(ratingService, never()).updateRating(any(), any(), any(), any());
     }
 
     @Test
@@ -411,7 +426,7 @@ public class RatingControllerUnitaryTest {
         );
         
         verify(ratingService, never()).findRatingById(any());
-        verify(ratingService, never()).updateRating(any(), any());
+        verify(ratingService, never()).updateRating(any(), any(), any(), any());
     }
 
 
@@ -427,7 +442,8 @@ public void testDelete_Unauthorized() throws Exception {
     // Mock behavior
     Rating existingRating = constructorRating(ratingId, "Great course!", 5, "user1", courseId, "user");
     when(userService.extractUserId(token)).thenReturn("no_authorized_user");
-    when(ratingService.findRatingById(ratingId)).thenReturn(existingRating);
+    when(ratingService.deleteRating(ratingId, "no_authorized_user", courseId))
+        .thenThrow(new RatingService.RatingOwnershipException("Rating " + ratingId + " does not belong to user: no_authorized_user"));
 
     // Call the method
     ResponseEntity<MessageResponse> response = ratingController.delete(courseId,token,ratingId);
@@ -0,0 +1,83 @@
+package com.mongodb.starter.rating;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.mongodb.starter.student.UserService;
+
+@ExtendWith(MockitoExtension.class)
+class RatingExportTest {
+
+    @Mock
+    private RatingService ratingService;
+
+    @Mock
+    private RatingValidator ratingValidator;
+
+    @Mock
+    private UserService userService;
+
+    private ObjectMapper objectMapper;
+
+    private RatingController ratingController;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        ratingController = new RatingController(ratingService, new RatingConfig(), ratingValidator, userService);
+        ReflectionTestUtils.setField(ratingController, "objectMapper", objectMapper);
+    }
+
+    @Test
+    void shouldWriteOneJsonDocumentPerLineAndCloseCursor() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean();
+        Stream<Rating> ratings = Stream.of(rating("r1", 5), rating("r2", 3)).onClose(() -> closed.set(true));
+        when(ratingService.streamAllRatingsByCourse("course1")).thenReturn(ratings);
+
+        ResponseEntity<StreamingResponseBody> response = ratingController.export("course1");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        assertEquals(MediaType.APPLICATION_NDJSON, response.getHeaders().getContentType());
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("r1", objectMapper.readTree(lines[0]).get("id").asText());
+        assertEquals(3, objectMapper.readTree(lines[1]).get("rating").asInt());
+        assertTrue(out.toString(StandardCharsets.UTF_8).endsWith("\n"));
+        assertTrue(closed.get(), "The Mongo cursor must be closed once the export finishes");
+    }
+
+    private Rating rating(String id, int stars) {
+        Rating rating = new Rating();
+        rating.setId(id);
+        rating.setDescription("description");
+        rating.setRating(stars);
+        rating.setUserId("user1");
+        rating.setCourseId("course1");
+        rating.setDate(LocalDateTime.of(2024, 12, 1, 10, 0));
+        return rating;
+    }
+
+}
@@ -13,6 +13,8 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.transaction.support.TransactionOperations;
 
 @ExtendWith(MockitoExtension.class)
 class RatingFeatureToggleTest {
@@ -25,13 +27,21 @@ class RatingFeatureToggleTest {
     
     @Mock
     private RatingThrottler ratingThrottler;
+
+    @Mock
+    private CourseRatingAggregator courseRatingAggregator;
+
+    @Mock
+    private CourseRatingOutbox courseRatingOutbox;
     
     private RatingService ratingService;
     private Rating testRating;
     
     @BeforeEach
     void setUp() {
-        ratingService = new RatingService(ratingRepository, ratingConfig, ratingThrottler);
+        ratingService = new RatingService(ratingRepository, ratingConfig, ratingThrottler, courseRatingAggregator,
+            new RatingCache(new NoOpCacheManager()), courseRatingOutbox,
+            new RatingTransactions(TransactionOperations.withoutTransaction(), 1));
         testRating = new Rating();
         testRating.setId("test-id");
         testRating.setDescription("Test description");
@@ -41,13 +51,13 @@ class RatingFeatureToggleTest {
         testRating.setDate(LocalDateTime.now());
 
         lenient().when(ratingRepository.findById("test-id")).thenReturn(Optional.of(testRating));
-        lenient().when(ratingThrottler.allowRequest("test-user")).thenReturn(true);
+        lenient().when(ratingThrottler.check(any(), eq("test-user"), any())).thenReturn(ThrottleDecision.ALLOWED);
     }
     
     @Test
     void shouldSaveRatingWhenFeatureEnabled() {
         when(ratingConfig.isEnabled()).thenReturn(true);
-        when(ratingThrottler.allowRequest("test-user")).thenReturn(true);
+        when(ratingThrottler.check(any(), eq("test-user"), any())).thenReturn(ThrottleDecision.ALLOWED);
         when(ratingRepository.save(any(Rating.class))).thenReturn(testRating);
 
         Rating savedRating = ratingService.saveRating(testRating);
@@ -81,22 +91,23 @@ class RatingFeatureToggleTest {
         when(ratingConfig.isEnabled()).thenReturn(false);
         
         assertThrows(RatingService.FeatureDisabledException.class, () -> {
-            ratingService.deleteRating("test-id");
+            ratingService.deleteRating("test-id", "test-user", "test-course");
         });
         
-        verify(ratingRepository, never()).delete(any(Rating.class));
+        verify(ratingRepository, never()).deleteOwnedRating(any(), any(), any());
     }
 
     @Test
     void shouldDeleteRatingWhenFeatureEnabled() {
         when(ratingConfig.isEnabled()).thenReturn(true);
-        doNothing().when(ratingRepository).delete(any(Rating.class));
-        when(ratingThrottler.allowRequest("test-user")).thenReturn(true);
+        when(ratingRepository.deleteOwnedRating("test-id", "test-user", "test-course")).thenReturn(testRating);
+        when(ratingThrottler.check(any(), eq("test-user"), any())).thenReturn(ThrottleDecision.ALLOWED);
 
         assertDoesNotThrow(() -> {
-            ratingService.deleteRating("test-id");
+            ratingService.deleteRating("test-id", "test-user", "test-course");
         });
 
-        verify(ratingRepository).delete(testRating);
+        verify(ratingRepository).deleteOwnedRating("test-id", "test-user", "test-course");
+        verify(courseRatingAggregator).ratingRemoved("test-course", 4);
     }
 }
\ No newline at end of file
@@ -0,0 +1,163 @@
+package com.mongodb.starter.rating;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.starter.student.UserService;
+
+@ExtendWith(MockitoExtension.class)
+class RatingFirstPageTest {
+
+    private static final String BASE = "/api/v1/course/course1/ratings/";
+
+    @Mock
+    private RatingService ratingService;
+
+    @Mock
+    private RatingValidator ratingValidator;
+
+    @Mock
+    private UserService userService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private RatingController ratingController;
+
+    private CourseRatingAggregate course;
+
+    private MockHttpServletResponse servletResponse;
+
+    @BeforeEach
+    void setUp() {
+        ratingController = new RatingController(ratingService, new RatingConfig(), ratingValidator, userService);
+        ReflectionTestUtils.setField(ratingController, "objectMapper", objectMapper);
+        course = new CourseRatingAggregate("course1");
+        course.setVersion(4);
+        when(ratingService.findCourseAggregate("course1")).thenReturn(course);
+    }
+
+    @Test
+    void shouldServeCachedGzipBytesWhenClientAcceptsGzip() {
+        SerializedRatingPage page = SerializedRatingPage.encode(4, new RatingPage(ratings(20), "cursor"), objectMapper);
+        when(ratingService.findSerializedHeadPage(eq("course1"), eq(null), eq(4L), any())).thenReturn(page);
+
+        ResponseEntity<byte[]> response = ratingController.findFirstPageByCourse("course1", null, "gzip, br", request(null));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertArrayEquals(page.getGzip(), response.getBody());
+        assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(List.of(HttpHeaders.ACCEPT_ENCODING), response.getHeaders().getVary());
+        assertEquals(List.of("\"4-50-gzip\""), servletResponse.getHeaders(HttpHeaders.ETAG));
+        assertEquals("cursor", response.getHeaders().getFirst(RatingController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void shouldServePlainJsonWhenClientDoesNotAcceptGzip() {
+        SerializedRatingPage page = SerializedRatingPage.encode(4, new RatingPage(ratings(20), null), objectMapper);
+        when(ratingService.findSerializedHeadPage(eq("course1"), eq(10), eq(4L), any())).thenReturn(page);
+
+        ResponseEntity<byte[]> response = ratingController.findFirstPageByCourse("course1", 10, null, request(null));
+
+        assertArrayEquals(page.getJson(), response.getBody());
+        assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(List.of("\"4-10\""), servletResponse.getHeaders(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void shouldAnswerNotModifiedWithoutLoadingThePage() {
+        ResponseEntity<byte[]> response = ratingController.findFirstPageByCourse("course1", null, "gzip", request("\"4-50-gzip\""));
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+        verify(ratingService, never()).findSerializedHeadPage(any(), any(), anyLong(), any());
+    }
+
+    @Test
+    void shouldIgnoreIfModifiedSinceWithoutETag() throws Exception {
+        course.setLastModified(Instant.parse("2024-12-01T10:00:00Z"));
+        SerializedRatingPage page = SerializedRatingPage.encode(4, new RatingPage(ratings(2), null), objectMapper);
+        when(ratingService.findSerializedHeadPage(eq("course1"), eq(null), eq(4L), any())).thenReturn(page);
+
+        mockMvc().perform(get(BASE).header(HttpHeaders.IF_MODIFIED_SINCE, "Mon, 02 Dec 2024 10:00:00 GMT"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED))
+                .andExpect(header().stringValues(HttpHeaders.ETAG, "\"4-50\""));
+    }
+
+    @Test
+    void shouldSendASingleETagOnNotModified() throws Exception {
+        mockMvc().perform(get(BASE).header(HttpHeaders.IF_NONE_MATCH, "\"4-50-gzip\"").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isNotModified())
+                .andExpect(header().stringValues(HttpHeaders.ETAG, "\"4-50-gzip\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"));
+    }
+
+    @Test
+    void shouldSendASingleETagOnNextPages() throws Exception {
+        when(ratingService.findRatingsPageByCourse("course1", null, "cursor")).thenReturn(new RatingPage(ratings(1), null));
+
+        mockMvc().perform(get(BASE).param("next", "cursor").header(HttpHeaders.IF_MODIFIED_SINCE, "Mon, 02 Dec 2024 10:00:00 GMT"))
+                .andExpect(status().isOk())
+                .andExpect(header().stringValues(HttpHeaders.ETAG, "\"4-50-cursor\""));
+
+        mockMvc().perform(get(BASE).param("next", "cursor").header(HttpHeaders.IF_NONE_MATCH, "\"4-50-cursor\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().stringValues(HttpHeaders.ETAG, "\"4-50-cursor\""));
+    }
+
+    private MockMvc mockMvc() {
+        return MockMvcBuilders.standaloneSetup(ratingController).build();
+    }
+
+    private ServletWebRequest request(String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/course/course1/ratings/");
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        servletResponse = new MockHttpServletResponse();
+        return new ServletWebRequest(request, servletResponse);
+    }
+
+    private List<Rating> ratings(int count) {
+        List<Rating> ratings = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Rating rating = new Rating();
+            rating.setId("r" + i);
+            rating.setDescription("A long enough description to make the page worth compressing");
+            rating.setRating(5);
+            ratings.add(rating);
+        }
+        return ratings;
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.mongodb.starter.rating;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import com.mongodb.starter.security.JwtProperties;
+import com.mongodb.starter.student.UserService;
+
+@ExtendWith(MockitoExtension.class)
+class RatingImportControllerTest {
+
+    @Mock
+    private RatingImportService ratingImportService;
+
+    @Mock
+    private UserService userService;
+
+    private JwtProperties jwtProperties;
+
+    private RatingImportController controller;
+
+    @BeforeEach
+    void setUp() {
+        RatingConfig ratingConfig = new RatingConfig();
+        ratingConfig.setEnabled(true);
+        jwtProperties = new JwtProperties();
+        controller = new RatingImportController(ratingImportService, ratingConfig, userService, jwtProperties);
+    }
+
+    @Test
+    void shouldRefuseImportWhenTokensAreNotVerified() throws Exception {
+        assertEquals(HttpStatus.FORBIDDEN, controller.importRatings("Bearer forged", request()).getStatusCode());
+
+        verify(userService, never()).getUserRoleById(any(), any());
+        verify(ratingImportService, never()).importRatings(any());
+    }
+
+    @Test
+    void shouldRefuseTokenThatWasNotVerifiedInThisRequest() throws Exception {
+        jwtProperties.setEnabled(true);
+        when(userService.isVerified("Bearer other")).thenReturn(false);
+
+        assertEquals(HttpStatus.FORBIDDEN, controller.importRatings("Bearer other", request()).getStatusCode());
+        verify(ratingImportService, never()).importRatings(any());
+    }
+
+    @Test
+    void shouldImportForVerifiedAdmin() throws Exception {
+        jwtProperties.setEnabled(true);
+        when(userService.isVerified("Bearer admin")).thenReturn(true);
+        when(userService.extractUserId("Bearer admin")).thenReturn("admin-1");
+        when(userService.getUserRoleById("admin-1", "Bearer admin")).thenReturn("ADMIN");
+        when(ratingImportService.importRatings(any())).thenReturn(new RatingImportReport());
+
+        assertEquals(HttpStatus.OK, controller.importRatings("Bearer admin", request()).getStatusCode());
+    }
+
+    private static MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setContent(new byte[0]);
+        return request;
+    }
+
+}
@@ -0,0 +1,143 @@
+package com.mongodb.starter.rating;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+
+@ExtendWith(MockitoExtension.class)
+class RatingImportServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @Mock
+    private CourseRatingAggregator courseRatingAggregator;
+
+    @Mock
+    private CourseRatingOutbox courseRatingOutbox;
+
+    @Mock
+    private RatingCache ratingCache;
+
+    private RatingImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        RatingConfig config = new RatingConfig();
+        config.setImportBatchSize(2);
+        importService = new RatingImportService(mongoTemplate, new ObjectMapper().findAndRegisterModules(),
+                new RatingValidator(), config, courseRatingAggregator, courseRatingOutbox, ratingCache);
+        when(mongoTemplate.bulkOps(BulkMode.UNORDERED, Rating.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+    }
+
+    @Test
+    void shouldInsertValidRowsInBatchesAndReportInvalidOnes() {
+        when(bulkOperations.execute()).thenReturn(acknowledged(2), acknowledged(1));
+
+        RatingImportReport report = importService.importRatings(ndjson(
+                row("user1", "course1", 5),
+                "{not json",
+                row("user2", "course1", 0),
+                "",
+                row("user3", "course2", 4),
+                row("user4", "course1", 3)));
+
+        assertEquals(5, report.getReceived());
+        assertEquals(3, report.getInserted());
+        assertEquals(2, report.getFailed());
+        assertEquals(2, report.getCourses());
+        assertEquals(2, report.getErrors().get(0).getLine());
+        assertEquals(3, report.getErrors().get(1).getLine());
+        assertTrue(report.getErrors().get(1).getMessage().startsWith("rating:"));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Rating>> batches = ArgumentCaptor.forClass(List.class);
+        verify(bulkOperations, times(2)).insert(batches.capture());
+        assertEquals(List.of(2, 1), batches.getAllValues().stream().map(List::size).toList());
+
+        // Un recálculo por curso al final, no uno por valoración
+        verify(courseRatingAggregator, times(1)).rebuild("course1");
+        verify(courseRatingAggregator, times(1)).rebuild("course2");
+        verify(courseRatingOutbox).courseChanged("course1");
+        verify(courseRatingOutbox).courseChanged("course2");
+    }
+
+    @Test
+    void shouldReportRowsRejectedByBulkWriteWithoutAbortingTheBatch() {
+        BulkOperationException duplicate = mock(BulkOperationException.class);
+        when(duplicate.getResult()).thenReturn(acknowledged(1));
+        when(duplicate.getErrors()).thenReturn(List.of(
+                new BulkWriteError(11000, "E11000 duplicate key", new BsonDocument(), 0)));
+        when(bulkOperations.execute()).thenThrow(duplicate).thenReturn(acknowledged(1));
+
+        RatingImportReport report = importService.importRatings(ndjson(
+                row("user1", "course1", 5),
+                row("user2", "course1", 4),
+                row("user3", "course1", 3)));
+
+        assertEquals(3, report.getReceived());
+        assertEquals(2, report.getInserted());
+        assertEquals(1, report.getFailed());
+        assertEquals(1, report.getErrors().get(0).getLine());
+        verify(courseRatingAggregator, times(1)).rebuild("course1");
+    }
+
+    @Test
+    void shouldRejectRowsWithoutDateOrObjectIdAndEvictImportedIds() {
+        when(bulkOperations.execute()).thenReturn(acknowledged(1));
+        String id = "65f1c0a1b2c3d4e5f6a7b8c9";
+
+        RatingImportReport report = importService.importRatings(ndjson(
+                row("user1", "course1", 5).replace("{", "{\"id\":\"" + id + "\","),
+                row("user2", "course1", 4).replace("{", "{\"id\":\"legacy-2\","),
+                row("user3", "course1", 3).replace("{", "{\"date\":null,")));
+
+        assertEquals(1, report.getInserted());
+        assertEquals(2, report.getFailed());
+        assertTrue(report.getErrors().get(0).getMessage().startsWith("id:"));
+        assertTrue(report.getErrors().get(1).getMessage().startsWith("date:"));
+        verify(ratingCache).evictRating(id);
+    }
+
+    private static BulkWriteResult acknowledged(int inserted) {
+        return BulkWriteResult.acknowledged(inserted, 0, 0, 0, List.of(), List.of());
+    }
+
+    private static String row(String userId, String courseId, int stars) {
+        return "{\"userId\":\"" + userId + "\",\"username\":\"Name " + userId + "\",\"courseId\":\"" + courseId
+                + "\",\"description\":\"Imported\",\"rating\":" + stars + "}";
+    }
+
+    private static ByteArrayInputStream ndjson(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,139 @@
+package com.mongodb.starter.rating;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.transaction.support.TransactionOperations;
+
+import com.mongodb.starter.exceptions.ResourceNotFoundException;
+
+@ExtendWith(MockitoExtension.class)
+class RatingOwnershipTest {
+
+    private static final String RATING_ID = "rating1";
+    private static final String OWNER = "owner";
+    private static final String COURSE_ID = "course1";
+
+    @Mock
+    private RatingRepository ratingRepository;
+
+    @Mock
+    private RatingConfig ratingConfig;
+
+    @Mock
+    private RatingThrottler ratingThrottler;
+
+    @Mock
+    private CourseRatingAggregator courseRatingAggregator;
+
+    @Mock
+    private CourseRatingOutbox courseRatingOutbox;
+
+    private RatingService ratingService;
+
+    @BeforeEach
+    void setUp() {
+        ratingService = new RatingService(ratingRepository, ratingConfig, ratingThrottler, courseRatingAggregator,
+            new RatingCache(new NoOpCacheManager()), courseRatingOutbox,
+            new RatingTransactions(TransactionOperations.withoutTransaction(), 1));
+        when(ratingConfig.isEnabled()).thenReturn(true);
+        when(ratingThrottler.check(any(), any(), any())).thenReturn(ThrottleDecision.ALLOWED);
+    }
+
+    @Test
+    void shouldUpdateOwnedRatingWithoutReadingItFirst() {
+        when(ratingRepository.updateOwnedRating(RATING_ID, OWNER, COURSE_ID, "Better now", 4)).thenReturn(stored(2));
+
+        Rating result = ratingService.updateRating(changes("Better now", 4), RATING_ID, OWNER, COURSE_ID);
+
+        assertEquals("Better now", result.getDescription());
+        assertEquals(4, result.getRating());
+        verify(courseRatingAggregator).ratingChanged("course1", 2, 4);
+        verify(courseRatingOutbox).courseChanged("course1");
+        verify(ratingRepository, never()).findById(any());
+            }
+
+    @Test
+    void shouldReportNotOwnerWhenRatingExists() {
+        when(ratingRepository.updateOwnedRating(RATING_ID, "intruder", COURSE_ID, "Hacked", 1)).thenReturn(null);
+        when(ratingRepository.findById(RATING_ID)).thenReturn(Optional.of(stored(1)));
+
+        assertThrows(RatingService.RatingOwnershipException.class,
+            () -> ratingService.updateRating(changes("Hacked", 1), RATING_ID, "intruder", COURSE_ID));
+        verify(courseRatingAggregator, never()).ratingChanged(any(), any(), any());
+        verify(courseRatingOutbox, never()).courseChanged(any());
+    }
+
+    @Test
+    void shouldReportNotFoundWhenRatingDoesNotExist() {
+        when(ratingRepository.updateOwnedRating(RATING_ID, OWNER, COURSE_ID, "Text", 3)).thenReturn(null);
+        when(ratingRepository.findById(RATING_ID)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class,
+            () -> ratingService.updateRating(changes("Text", 3), RATING_ID, OWNER, COURSE_ID));
+    }
+
+    @Test
+    void shouldDeleteOwnedRatingAndUpdateAggregate() {
+        when(ratingRepository.deleteOwnedRating(RATING_ID, OWNER, COURSE_ID)).thenReturn(stored(5));
+
+        Rating deleted = ratingService.deleteRating(RATING_ID, OWNER, COURSE_ID);
+
+        assertEquals("course1", deleted.getCourseId());
+        verify(courseRatingAggregator).ratingRemoved("course1", 5);
+        verify(courseRatingOutbox).courseChanged("course1");
+        verify(ratingRepository, never()).delete(any());
+    }
+
+    @Test
+    void shouldReportNotOwnerOnDeleteWhenRatingExists() {
+        when(ratingRepository.deleteOwnedRating(RATING_ID, "intruder", COURSE_ID)).thenReturn(null);
+        when(ratingRepository.findById(RATING_ID)).thenReturn(Optional.of(stored(1)));
+
+        assertThrows(RatingService.RatingOwnershipException.class,
+            () -> ratingService.deleteRating(RATING_ID, "intruder", COURSE_ID));
+        verify(courseRatingAggregator, never()).ratingRemoved(any(), any());
+    }
+
+    @Test
+    void shouldNotUpdateRatingThroughAnotherCoursePath() {
+        // El throttling se aplicó a course2: el filtro exige que sea también el curso guardado
+        when(ratingRepository.updateOwnedRating(RATING_ID, OWNER, "course2", "Text", 3)).thenReturn(null);
+        when(ratingRepository.findById(RATING_ID)).thenReturn(Optional.of(stored(2)));
+
+        assertThrows(ResourceNotFoundException.class,
+            () -> ratingService.updateRating(changes("Text", 3), RATING_ID, OWNER, "course2"));
+        verify(ratingThrottler).check(RatingConfig.Operation.UPDATE, OWNER, "course2");
+        verify(courseRatingAggregator, never()).ratingChanged(any(), any(), any());
+    }
+
+    private Rating changes(String description, int stars) {
+        Rating rating = new Rating();
+        rating.setDescription(description);
+        rating.setRating(stars);
+        return rating;
+    }
+
+    private Rating stored(int stars) {
+        Rating rating = new Rating();
+        rating.setId(RATING_ID);
+        rating.setDescription("Original");
+        rating.setRating(stars);
+        rating.setUserId(OWNER);
+        rating.setCourseId(COURSE_ID);
+        return rating;
+    }
+
+}
@@ -0,0 +1,169 @@
+package com.mongodb.starter.rating;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.data.mongodb.core.query.SerializationUtils.serializeToJsonSafely;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionOperations;
+
+import com.mongodb.starter.exceptions.BadRequestException;
+import com.mongodb.starter.exceptions.ValidationException;
+
+@ExtendWith(MockitoExtension.class)
+class RatingPaginationTest {
+
+    @Mock
+    private RatingRepository ratingRepository;
+
+    @Mock
+    private RatingThrottler ratingThrottler;
+
+    @Mock
+    private CourseRatingAggregator courseRatingAggregator;
+
+    @Mock
+    private CourseRatingOutbox courseRatingOutbox;
+
+    private RatingConfig ratingConfig;
+
+    private RatingService ratingService;
+
+    @BeforeEach
+    void setUp() {
+        ratingConfig = new RatingConfig();
+        ratingConfig.setDefaultPageSize(2);
+        ratingConfig.setMaxPageSize(3);
+        ratingService = new RatingService(ratingRepository, ratingConfig, ratingThrottler, courseRatingAggregator,
+            new RatingCache(new NoOpCacheManager()), courseRatingOutbox,
+            new RatingTransactions(TransactionOperations.withoutTransaction(), 1));
+    }
+
+    @Test
+    void shouldReturnNextCursorWhenMoreRatingsExist() {
+        List<Rating> ratings = ratings(3);
+        when(ratingRepository.findFirstRatingsPageByCourse(eq("course1"), any(Pageable.class))).thenReturn(ratings);
+
+        RatingPage page = ratingService.findRatingsPageByCourse("course1", null, null);
+
+        assertEquals(2, page.getRatings().size());
+        RatingCursor cursor = RatingCursor.decode(page.getNext());
+        assertEquals(ratings.get(1).getDate(), cursor.getDate());
+        assertEquals(new ObjectId(ratings.get(1).getId()), cursor.getId());
+    }
+
+    @Test
+    void shouldOmitNextCursorOnLastPage() {
+        when(ratingRepository.findFirstRatingsPageByCourse(eq("course1"), any(Pageable.class))).thenReturn(ratings(1));
+
+        RatingPage page = ratingService.findRatingsPageByCourse("course1", null, null);
+
+        assertEquals(1, page.getRatings().size());
+        assertNull(page.getNext());
+    }
+
+    @Test
+    void shouldContinueAfterCursor() {
+        Rating last = ratings(1).get(0);
+        String next = RatingCursor.after(last).encode();
+        when(ratingRepository.findRatingsPageByCourseAfter(eq("course1"), any(RatingCursor.class), any(Pageable.class)))
+            .thenReturn(new ArrayList<>());
+
+        RatingPage page = ratingService.findRatingsPageByCourse("course1", 2, next);
+
+        assertEquals(0, page.getRatings().size());
+        assertNull(page.getNext());
+        ArgumentCaptor<RatingCursor> cursor = ArgumentCaptor.forClass(RatingCursor.class);
+        verify(ratingRepository).findRatingsPageByCourseAfter(eq("course1"), cursor.capture(), any(Pageable.class));
+        assertEquals(last.getDate(), cursor.getValue().getDate());
+        assertEquals(new ObjectId(last.getId()), cursor.getValue().getId());
+    }
+
+    @Test
+    void shouldPageThroughLegacyRatingsWithoutDateOrObjectId() {
+        List<Rating> legacy = ratings(3);
+        legacy.get(1).setId("legacy|1");
+        legacy.get(1).setDate(null);
+        when(ratingRepository.findFirstRatingsPageByCourse(eq("course1"), any(Pageable.class))).thenReturn(legacy);
+
+        String next = ratingService.findRatingsPageByCourse("course1", 2, null).getNext();
+
+        RatingCursor cursor = RatingCursor.decode(next);
+        assertNull(cursor.getDate());
+        assertEquals("legacy|1", cursor.getId());
+    }
+
+    @Test
+    void shouldKeepLegacyRatingsInTheKeysetOrder() {
+        Rating rating = ratings(1).get(0);
+        // Detrás de un ObjectId van los _id String de la misma fecha y las valoraciones sin fecha
+        String json = serializeToJsonSafely(RatingRepositoryCustomImpl.after("course1", RatingCursor.after(rating)).getQueryObject());
+        assertTrue(json.contains("\"$type\" : [\"string\"]"), json);
+        assertTrue(json.contains("\"date\" : null"), json);
+
+        rating.setId("legacy-1");
+        rating.setDate(null);
+        String legacy = serializeToJsonSafely(RatingRepositoryCustomImpl.after("course1", RatingCursor.after(rating)).getQueryObject());
+        assertTrue(legacy.contains("\"$lt\" : \"legacy-1\""), legacy);
+        assertFalse(legacy.contains("$type"), legacy);
+    }
+
+    @Test
+    void shouldClampLimitToMaxPageSize() {
+        when(ratingRepository.findFirstRatingsPageByCourse(eq("course1"), any(Pageable.class))).thenReturn(new ArrayList<>());
+
+        ratingService.findRatingsPageByCourse("course1", 1000, null);
+
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(ratingRepository).findFirstRatingsPageByCourse(eq("course1"), pageable.capture());
+        assertEquals(ratingConfig.getMaxPageSize() + 1, pageable.getValue().getPageSize());
+    }
+
+    @Test
+    void shouldRejectNonPositiveLimit() {
+        assertThrows(BadRequestException.class, () -> ratingService.findRatingsPageByCourse("course1", 0, null));
+    }
+
+    @Test
+    void shouldRejectMalformedCursor() {
+        assertThrows(ValidationException.class, () -> ratingService.findRatingsPageByCourse("course1", null, "not-a-cursor"));
+        String badId = Base64.getUrlEncoder().encodeToString("2024-12-01T10:00|not-an-object-id".getBytes(StandardCharsets.UTF_8));
+        assertThrows(ValidationException.class, () -> ratingService.findRatingsPageByCourse("course1", null, badId));
+    }
+
+    private List<Rating> ratings(int count) {
+        List<Rating> ratings = new ArrayList<>();
+        LocalDateTime date = LocalDateTime.of(2024, 12, 1, 10, 0);
+        for (int i = 0; i < count; i++) {
+            Rating rating = new Rating();
+            rating.setId(new ObjectId().toHexString());
+            rating.setCourseId("course1");
+            rating.setRating(4);
+            rating.setDate(date.minusMinutes(i));
+            ratings.add(rating);
+        }
+        return ratings;
+    }
+
+}
@@ -102,17 +102,16 @@ class RatingServiceIntegrationTest {
         Rating updateData = new Rating();
         updateData.setDescription("Updated description");
         updateData.setRating(5);
-        updateData.setUserId("updatedUser");
-        updateData.setCourseId(existingRating.getCourseId());
 
-        Rating updatedRating = ratingService.updateRating(updateData, existingRating.getId());
+        Rating updatedRating = ratingService.updateRating(updateData, existingRating.getId(),
+            existingRating.getUserId(), existingRating.getCourseId());
 
         assertThat(updatedRating)
             .satisfies(rating -> {
                 assertThat(rating.getId()).isEqualTo(existingRating.getId());
                 assertThat(rating.getDescription()).isEqualTo(updateData.getDescription());
                 assertThat(rating.getRating()).isEqualTo(updateData.getRating());
-                assertThat(rating.getUserId()).isEqualTo(updateData.getUserId());
+                assertThat(rating.getUserId()).isEqualTo(existingRating.getUserId());
                 assertThat(rating.getCourseId()).isEqualTo(existingRating.getCourseId());
             });
     }
@@ -122,20 +121,20 @@ class RatingServiceIntegrationTest {
         Rating updateData = createTestRating("course1");
 
         assertThrows(ResourceNotFoundException.class, 
-            () -> ratingService.updateRating(updateData, "nonexistent-id"));
+            () -> ratingService.updateRating(updateData, "nonexistent-id", "testUser", "course1"));
     }
 
     @Test
     public void deleteRating() {
         Rating rating = ratingRepository.save(createTestRating("course1"));
-        ratingService.deleteRating(rating.getId());
+        ratingService.deleteRating(rating.getId(), rating.getUserId(), rating.getCourseId());
         assertThat(ratingRepository.findById(rating.getId())).isEmpty();
     }
 
     @Test
     public void throwExceptionWhenDeletingNonExistentRating() {
         assertThrows(ResourceNotFoundException.class, 
-            () -> ratingService.deleteRating("nonexistent-id"));
+            () -> ratingService.deleteRating("nonexistent-id", "testUser", "course1"));
     }
 
     private Rating createTestRating(String course) {
@@ -207,7 +206,7 @@ class RatingServiceIntegrationTest {
         updateData.setCourseId("course1");
 
         assertThrows(ValidationException.class, 
-            () -> ratingService.updateRating(updateData, existingRating.getId()));
+            () -> ratingService.updateRating(updateData, existingRating.getId(), "testUser", "course1"));
     }
 
     */
@@ -4,7 +4,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -24,10 +24,12 @@ import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.support.NoOpCacheManager;
 
 import com.mongodb.starter.exceptions.ResourceNotFoundException;
 
@@ -44,6 +46,15 @@ public class RatingServiceUnitaryTest{
     @Mock
     private RatingThrottler ratingThrottler;
 
+    @Mock
+    private CourseRatingAggregator courseRatingAggregator;
+
+    @Mock
+    private CourseRatingOutbox courseRatingOutbox;
+
+    @Spy
+    private RatingCache ratingCache = new RatingCache(new NoOpCacheManager());
+
     @InjectMocks
     private RatingService ratingService;
 
@@ -102,7 +113,7 @@ public class RatingServiceUnitaryTest{
 
         when(ratingRepository.save(rating1)).thenReturn(rating1);
         when(ratingConfig.isEnabled()).thenReturn(true);
-        when(ratingThrottler.allowRequest(any())).thenReturn(true);
+        when(ratingThrottler.check(any(), any(), any())).thenReturn(ThrottleDecision.ALLOWED);
 
         Rating result = ratingService.saveRating(rating1);
 
@@ -114,20 +125,19 @@ public class RatingServiceUnitaryTest{
     public void shouldUpdateRating(){
         Rating existingRating = constructorRating("rate1","No me ha gustado nada",1,"user1","course1");
         Rating updatedRating = constructorRating("rate1", "Bueno, tampoco estaba tan mal", 2, "user1", "course1");
-        when(ratingRepository.findById("rate1")).thenReturn(Optional.of(existingRating));
-        when(ratingRepository.save(existingRating)).thenReturn(updatedRating);
+        when(ratingRepository.updateOwnedRating("rate1", "user1", "course1", "Bueno, tampoco estaba tan mal", 2)).thenReturn(existingRating);
         when(ratingConfig.isEnabled()).thenReturn(true);
-        when(ratingThrottler.allowRequest(any())).thenReturn(true);
+        when(ratingThrottler.check(any(), any(), any())).thenReturn(ThrottleDecision.ALLOWED);
 
-        Rating result = ratingService.updateRating(updatedRating,"rate1");
+        Rating result = ratingService.updateRating(updatedRating, "rate1", "user1", "course1");
 
         assertEquals("Bueno, tampoco estaba tan mal", result.getDescription());
         assertEquals(2, result.getRating());
         assertEquals("user1", result.getUserId());
         assertEquals("course1", result.getCourseId());
 
-        verify(ratingRepository, times(1)).findById("rate1");
-        verify(ratingRepository, times(1)).save(existingRating);
+        verify(ratingRepository, times(1)).updateOwnedRating("rate1", "user1", "course1", "Bueno, tampoco estaba tan mal", 2);
+        verify(ratingRepository, never()).save(any());
 
     }
 
@@ -136,30 +146,28 @@ public class RatingServiceUnitaryTest{
         String ratingId = "rate1";
         Rating existingRating = new Rating();
         existingRating.setId(ratingId);
+        existingRating.setUserId("user1");
+        existingRating.setCourseId("course1");
 
-        when(ratingRepository.findById(ratingId)).thenReturn(Optional.of(existingRating));
+        when(ratingRepository.deleteOwnedRating(ratingId, "user1", "course1")).thenReturn(existingRating);
         when(ratingConfig.isEnabled()).thenReturn(true);
-        when(ratingThrottler.allowRequest(any())).thenReturn(true);
-        
-        doNothing().when(ratingRepository).delete(existingRating);
+        when(ratingThrottler.check(any(), any(), any())).thenReturn(ThrottleDecision.ALLOWED);
 
-        ratingService.deleteRating(ratingId);
+        ratingService.deleteRating(ratingId, "user1", "course1");
 
-        verify(ratingRepository, times(1)).findById(ratingId);
-        verify(ratingRepository, times(1)).delete(existingRating);
+        verify(ratingRepository, times(1)).deleteOwnedRating(ratingId, "user1", "course1");
+        verify(ratingRepository, never()).findById(ratingId);
     }
 
     @Test
     public void testRatingMean() {
         String courseId = "course1";
-        Rating rating1 = constructorRating("rate1","No me ha gustado nada",1,"user1","course1");
-        Rating rating2 = constructorRating("rate2","No estaba mal",2,"user2","course1");
-
-        when(ratingService.findAllRatingsByCourse(courseId)).thenReturn(Arrays.asList(rating1, rating2));
+        when(courseRatingAggregator.mean(courseId)).thenReturn(1.5);
 
         Double result = ratingService.ratingMean(courseId);
 
         assertEquals(1.5, result);
+        verify(ratingRepository, never()).findAllRatingsByCourse(courseId);
 
     }
 
@@ -200,7 +208,7 @@ public class RatingServiceUnitaryTest{
 
         assertEquals("Rating feature is currently disabled", exception.getMessage());
         verify(ratingConfig).isEnabled();
-        verify(ratingThrottler, never()).allowRequest(any());
+        verify(ratingThrottler, never()).check(any(), any(), any());
         verify(ratingRepository, never()).save(any());
     }
 
@@ -211,7 +219,7 @@ public class RatingServiceUnitaryTest{
         rating.setUserId(USER_ID);
         
         when(ratingConfig.isEnabled()).thenReturn(true);
-        when(ratingThrottler.allowRequest(USER_ID)).thenReturn(false);
+        when(ratingThrottler.check(any(), eq(USER_ID), any())).thenReturn(ThrottleDecision.rejected(ThrottleDecision.USER, 1000));
 
         // When/Then
         RatingService.ThrottlingException exception = assertThrows(
@@ -221,7 +229,7 @@ public class RatingServiceUnitaryTest{
 
         assertEquals("Rate limit exceeded for user: " + USER_ID, exception.getMessage());
         verify(ratingConfig).isEnabled();
-        verify(ratingThrottler).allowRequest(USER_ID);
+        verify(ratingThrottler).check(any(), eq(USER_ID), any());
         verify(ratingRepository, never()).save(any());
     }
 
@@ -232,18 +240,19 @@ public class RatingServiceUnitaryTest{
         rating.setUserId(USER_ID);
         
         when(ratingConfig.isEnabled()).thenReturn(true);
+        when(ratingThrottler.check(any(), eq(USER_ID), eq(COURSE_ID))).thenReturn(ThrottleDecision.ALLOWED);
+        when(ratingRepository.updateOwnedRating(RATING_ID, USER_ID, COURSE_ID, null, null)).thenReturn(null);
         when(ratingRepository.findById(RATING_ID)).thenReturn(Optional.empty());
 
         // When/Then
         ResourceNotFoundException exception = assertThrows(
             ResourceNotFoundException.class,
-            () -> ratingService.updateRating(rating, RATING_ID)
+            () -> ratingService.updateRating(rating, RATING_ID, USER_ID, COURSE_ID)
         );
 
         verify(ratingConfig).isEnabled();
-        verify(ratingRepository).findById(RATING_ID);
-        verify(ratingThrottler, never()).allowRequest(any());
-        verify(ratingRepository, never()).save(any());
+        verify(ratingRepository).updateOwnedRating(RATING_ID, USER_ID, COURSE_ID, null, null);
+        verify(courseRatingAggregator, never()).ratingChanged(any(), any(), any());
     }
 
     @Test
@@ -257,14 +266,13 @@ public class RatingServiceUnitaryTest{
         // When/Then
         RatingService.FeatureDisabledException exception = assertThrows(
             RatingService.FeatureDisabledException.class,
-            () -> ratingService.updateRating(rating, RATING_ID)
+            () -> ratingService.updateRating(rating, RATING_ID, USER_ID, COURSE_ID)
         );
 
         assertEquals("Rating feature is currently disabled", exception.getMessage());
         verify(ratingConfig).isEnabled();
-        verify(ratingRepository, never()).findById(any());
-        verify(ratingThrottler, never()).allowRequest(any());
-        verify(ratingRepository, never()).save(any());
+        verify(ratingThrottler, never()).check(any(), any(), any());
+        verify(ratingRepository, never()).updateOwnedRating(any(), any(), any(), any(), any());
     }
 
     @Test
@@ -273,24 +281,19 @@ public class RatingServiceUnitaryTest{
         Rating rating = new Rating();
         rating.setUserId(USER_ID);
         
-        Rating existingRating = new Rating();
-        existingRating.setId(RATING_ID);
-        
         when(ratingConfig.isEnabled()).thenReturn(true);
-        when(ratingRepository.findById(RATING_ID)).thenReturn(Optional.of(existingRating));
-        when(ratingThrottler.allowRequest(USER_ID)).thenReturn(false);
+        when(ratingThrottler.check(any(), eq(USER_ID), any())).thenReturn(ThrottleDecision.rejected(ThrottleDecision.USER, 1000));
 
         // When/Then
         RatingService.ThrottlingException exception = assertThrows(
             RatingService.ThrottlingException.class,
-            () -> ratingService.updateRating(rating, RATING_ID)
+            () -> ratingService.updateRating(rating, RATING_ID, USER_ID, COURSE_ID)
         );
 
         assertEquals("Rate limit exceeded for user: " + USER_ID, exception.getMessage());
         verify(ratingConfig).isEnabled();
-        verify(ratingRepository).findById(RATING_ID);
-        verify(ratingThrottler).allowRequest(USER_ID);
-        verify(ratingRepository, never()).save(any());
+        verify(ratingThrottler).check(any(), eq(USER_ID), any());
+        verify(ratingRepository, never()).updateOwnedRating(any(), any(), any(), any(), any());
     }
 
     @Test
@@ -301,69 +304,63 @@ public class RatingServiceUnitaryTest{
         // When/Then
         RatingService.FeatureDisabledException exception = assertThrows(
             RatingService.FeatureDisabledException.class,
-            () -> ratingService.deleteRating(RATING_ID)
+            () -> ratingService.deleteRating(RATING_ID, USER_ID, COURSE_ID)
         );
 
         assertEquals("Rating feature is currently disabled", exception.getMessage());
         verify(ratingConfig).isEnabled();
-        verify(ratingRepository, never()).findById(any());
-        verify(ratingThrottler, never()).allowRequest(any());
-        verify(ratingRepository, never()).delete(any());
+        verify(ratingThrottler, never()).check(any(), any(), any());
+        verify(ratingRepository, never()).deleteOwnedRating(any(), any(), any());
     }
 
     @Test
     public void deleteRating_ShouldThrowResourceNotFoundException_WhenRatingNotFound() {
         // Given
         when(ratingConfig.isEnabled()).thenReturn(true);
+        when(ratingThrottler.check(any(), eq(USER_ID), eq(COURSE_ID))).thenReturn(ThrottleDecision.ALLOWED);
+        when(ratingRepository.deleteOwnedRating(RATING_ID, USER_ID, COURSE_ID)).thenReturn(null);
         when(ratingRepository.findById(RATING_ID)).thenReturn(Optional.empty());
 
         // When/Then
         ResourceNotFoundException exception = assertThrows(
             ResourceNotFoundException.class,
-            () -> ratingService.deleteRating(RATING_ID)
+            () -> ratingService.deleteRating(RATING_ID, USER_ID, COURSE_ID)
         );
 
         verify(ratingConfig).isEnabled();
-        verify(ratingRepository).findById(RATING_ID);
-        verify(ratingThrottler, never()).allowRequest(any());
-        verify(ratingRepository, never()).delete(any());
+        verify(ratingRepository).deleteOwnedRating(RATING_ID, USER_ID, COURSE_ID);
+        verify(courseRatingAggregator, never()).ratingRemoved(any(), any());
     }
 
     @Test
     public void deleteRating_ShouldThrowThrottlingException_WhenRateLimitExceeded() {
         // Given
-        Rating existingRating = new Rating();
-        existingRating.setId(RATING_ID);
-        existingRating.setUserId(USER_ID);
-        
         when(ratingConfig.isEnabled()).thenReturn(true);
-        when(ratingRepository.findById(RATING_ID)).thenReturn(Optional.of(existingRating));
-        when(ratingThrottler.allowRequest(USER_ID)).thenReturn(false);
+        when(ratingThrottler.check(any(), eq(USER_ID), any())).thenReturn(ThrottleDecision.rejected(ThrottleDecision.USER, 1000));
 
         // When/Then
         RatingService.ThrottlingException exception = assertThrows(
             RatingService.ThrottlingException.class,
-            () -> ratingService.deleteRating(RATING_ID)
+            () -> ratingService.deleteRating(RATING_ID, USER_ID, COURSE_ID)
         );
 
         assertEquals("Rate limit exceeded for user: " + USER_ID, exception.getMessage());
         verify(ratingConfig).isEnabled();
-        verify(ratingRepository).findById(RATING_ID);
-        verify(ratingThrottler).allowRequest(USER_ID);
-        verify(ratingRepository, never()).delete(any());
+        verify(ratingThrottler).check(any(), eq(USER_ID), any());
+        verify(ratingRepository, never()).deleteOwnedRating(any(), any(), any());
     }
 
     @Test
     public void ratingMean_ShouldReturnZero_WhenNoRatingsExist() {
         // Given
-        when(ratingRepository.findAllRatingsByCourse(COURSE_ID)).thenReturn(Collections.emptyList());
+        when(courseRatingAggregator.mean(COURSE_ID)).thenReturn(0.0);
 
         // When
         Double result = ratingService.ratingMean(COURSE_ID);
 
         // Then
         assertEquals(0.0, result);
-        verify(ratingRepository).findAllRatingsByCourse(COURSE_ID);
+        verify(courseRatingAggregator).mean(COURSE_ID);
     }
 
     @Test
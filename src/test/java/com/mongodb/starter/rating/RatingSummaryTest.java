@@ -0,0 +1,81 @@
+package com.mongodb.starter.rating;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.transaction.support.TransactionOperations;
+
+import com.mongodb.starter.exceptions.BadRequestException;
+
+@ExtendWith(MockitoExtension.class)
+class RatingSummaryTest {
+
+    @Mock
+    private RatingRepository ratingRepository;
+
+    @Mock
+    private RatingThrottler ratingThrottler;
+
+    @Mock
+    private CourseRatingAggregator courseRatingAggregator;
+
+    @Mock
+    private CourseRatingOutbox courseRatingOutbox;
+
+    private RatingService ratingService;
+
+    @BeforeEach
+    void setUp() {
+        RatingConfig ratingConfig = new RatingConfig();
+        ratingConfig.setMaxSummaryCourses(3);
+        ratingService = new RatingService(ratingRepository, ratingConfig, ratingThrottler, courseRatingAggregator,
+            new RatingCache(new NoOpCacheManager()), courseRatingOutbox,
+            new RatingTransactions(TransactionOperations.withoutTransaction(), 1));
+    }
+
+    @Test
+    void shouldReturnOneSummaryPerRequestedCourseInOneRead() {
+        CourseRatingAggregate course1 = new CourseRatingAggregate("course1");
+        course1.setCount(2);
+        course1.setSum(9);
+        course1.getHistogram().put("4", 1L);
+        course1.getHistogram().put("5", 1L);
+        when(courseRatingAggregator.findAll(List.of("course2", "course1"))).thenReturn(Map.of("course1", course1));
+
+        List<CourseRatingAggregate> summaries = ratingService.findCourseSummaries(List.of("course2", " course1", "course2", ""));
+
+        assertEquals(List.of("course2", "course1"), summaries.stream().map(CourseRatingAggregate::getCourseId).toList());
+        assertEquals(0, summaries.get(0).getCount());
+        assertEquals(4.5, summaries.get(1).getMean());
+        assertEquals(1L, summaries.get(1).getHistogram().get("5"));
+    }
+
+    @Test
+    void shouldRejectMoreCoursesThanTheLimit() {
+        assertThrows(BadRequestException.class,
+            () -> ratingService.findCourseSummaries(List.of("course1", "course2", "course3", "course4")));
+
+        verify(courseRatingAggregator, never()).findAll(any());
+    }
+
+    @Test
+    void shouldRejectEmptyCourseList() {
+        assertThrows(BadRequestException.class, () -> ratingService.findCourseSummaries(Collections.emptyList()));
+        assertThrows(BadRequestException.class, () -> ratingService.findCourseSummaries(null));
+    }
+
+}
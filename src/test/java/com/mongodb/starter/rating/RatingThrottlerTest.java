@@ -1,13 +1,21 @@
 package com.mongodb.starter.rating;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessResourceFailureException;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 @SpringBootTest
 @TestPropertySource(properties = {
@@ -97,4 +105,201 @@ public class RatingThrottlerTest {
         assertTrue(ratingThrottler.allowRequest(userId, newTime), 
                 "Request after 1 hour should be allowed");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testIdleBucketsExpireWithoutSweepingOnRequest() {
+        AtomicLong nanos = new AtomicLong();
+        RatingThrottler throttler = new RatingThrottler(ratingConfig, nanos::get);
+
+        assertTrue(throttler.allowRequest("idleUser", 0));
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(ratingConfig.getThrottleIdleMs()) + 1);
+
+        assertFalse(throttler.getBuckets().containsKey("idleUser"), "Idle bucket should expire");
+        assertEquals(0, throttler.bucketCount());
+    }
+
+    @Test
+    public void testBucketCountIsBounded() {
+        RatingConfig config = new RatingConfig();
+        config.setBurstSize(10);
+        config.setRequestsPerHour(10);
+        config.setThrottleMaxBuckets(100);
+        RatingThrottler throttler = new RatingThrottler(config);
+
+        for (int i = 0; i < 1000; i++) {
+            throttler.allowRequest("user" + i, 0);
+        }
+
+        assertTrue(throttler.bucketCount() <= 100, "Bucket map should never exceed the configured maximum");
+    }
+
+    @Test
+    public void testDistributedModeLeasesTokensInBatches() {
+        RatingThrottleStore store = mock(RatingThrottleStore.class);
+        when(store.lease(eq("user"), anyLong(), anyLong(), eq(5L), anyLong(), eq(100L))).thenReturn(5L, 2L, 0L);
+        RatingThrottler throttler = new RatingThrottler(distributedConfig(), store);
+
+        long now = TimeUnit.HOURS.toMillis(1000);
+        for (int i = 0; i < 7; i++) {
+            assertTrue(throttler.allowRequest("user", now), "Request " + (i + 1) + " should use leased tokens");
+        }
+        assertFalse(throttler.allowRequest("user", now), "Cluster-wide limit reached");
+        assertFalse(throttler.allowRequest("user", now));
+
+        // 7 peticiones admitidas con 3 reservas; la ventana agotada no se vuelve a consultar
+        verify(store, times(3)).lease(eq("user"), eq(now), eq(TimeUnit.HOURS.toMillis(1)), eq(5L), eq(0L), eq(100L));
+    }
+
+    @Test
+    public void testDistributedModeFallsBackToLocalLimitWhenMongoFails() {
+        RatingThrottleStore store = mock(RatingThrottleStore.class);
+        when(store.lease(eq("user"), anyLong(), anyLong(), anyLong(), anyLong(), anyLong()))
+                .thenThrow(new DataAccessResourceFailureException("down"));
+        RatingThrottler throttler = new RatingThrottler(distributedConfig(), store);
+
+        for (int i = 0; i < 50; i++) {
+            assertTrue(throttler.allowRequest("user", 0));
+        }
+        assertFalse(throttler.allowRequest("user", 0), "Local burst still applies");
+        // Un solo WARN mientras Mongo sigue caído; el resto se cuenta para el siguiente
+        assertEquals(49, throttler.suppressedStoreWarnings());
+    }
+
+    @Test
+    public void testRejectedRequestReturnsClusterTokenToLease() {
+        RatingThrottleStore store = mock(RatingThrottleStore.class);
+        when(store.lease(eq("user:create:a"), anyLong(), anyLong(), anyLong(), anyLong(), anyLong())).thenReturn(5L);
+        when(store.lease(eq("course:create:hot"), anyLong(), anyLong(), anyLong(), anyLong(), anyLong())).thenReturn(0L);
+        when(store.lease(eq("course:create:other"), anyLong(), anyLong(), anyLong(), anyLong(), anyLong())).thenReturn(5L);
+        RatingConfig config = distributedConfig();
+        RatingConfig.ThrottlePolicy policy = new RatingConfig.ThrottlePolicy();
+        policy.setUser(limit(50, 100));
+        policy.setCourse(limit(50, 100));
+        config.getPolicies().put(RatingConfig.Operation.CREATE, policy);
+        RatingThrottler throttler = new RatingThrottler(config, store);
+
+        long now = TimeUnit.HOURS.toMillis(1000);
+        assertEquals(ThrottleDecision.COURSE, throttler.check(RatingConfig.Operation.CREATE, "a", "hot", now).scope());
+        for (int i = 0; i < 5; i++) {
+            assertTrue(throttler.check(RatingConfig.Operation.CREATE, "a", "other", now).allowed());
+        }
+
+        // Los 5 tokens de la reserva del usuario siguen disponibles tras el rechazo del curso
+        verify(store, times(1)).lease(eq("user:create:a"), anyLong(), anyLong(), anyLong(), anyLong(), anyLong());
+    }
+
+    @Test
+    public void testExpiredLeaseReturnsUnspentTokens() {
+        RatingThrottleStore store = mock(RatingThrottleStore.class);
+        when(store.lease(eq("user"), anyLong(), anyLong(), eq(5L), anyLong(), eq(100L))).thenReturn(5L);
+        RatingThrottler throttler = new RatingThrottler(distributedConfig(), store);
+
+        // Una petición cada 20 s: cada reserva (10 s) caduca con 4 tokens sin gastar
+        long window = TimeUnit.HOURS.toMillis(1000);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(throttler.allowRequest("user", window + i * 20_000L));
+        }
+
+        // Cada renovación devuelve los 4 tokens sobrantes: el contador sube 1 por petición, no 5
+        verify(store, times(1)).lease(eq("user"), eq(window), anyLong(), eq(5L), eq(0L), eq(100L));
+        verify(store, times(9)).lease(eq("user"), eq(window), anyLong(), eq(5L), eq(4L), eq(100L));
+    }
+
+    @Test
+    public void testLeaseGrantsOnlyWhatWasLeftBeforeTheIncrement() {
+        assertEquals(5, RatingThrottleStore.granted(5, 5, 100));
+        assertEquals(2, RatingThrottleStore.granted(103, 5, 100));
+        assertEquals(0, RatingThrottleStore.granted(110, 5, 100));
+    }
+
+    private RatingConfig distributedConfig() {
+        RatingConfig config = new RatingConfig();
+        config.setBurstSize(50);
+        config.setRequestsPerHour(100);
+        config.setThrottleMode(RatingConfig.ThrottleMode.DISTRIBUTED);
+        config.setThrottleLeaseSize(5);
+        config.setThrottleLeaseMs(10000);
+        return config;
+    }
+
+    @Test
+    public void testCoursePolicyRejectsHotCourseAndRefundsUserToken() {
+        RatingConfig config = new RatingConfig();
+        config.setBurstSize(5);
+        config.setRequestsPerHour(5);
+        RatingConfig.ThrottlePolicy policy = new RatingConfig.ThrottlePolicy();
+        policy.setCourse(limit(2, 3600));
+        config.getPolicies().put(RatingConfig.Operation.CREATE, policy);
+        RatingThrottler throttler = new RatingThrottler(config);
+
+        assertTrue(throttler.check(RatingConfig.Operation.CREATE, "a", "hot", 0).allowed());
+        assertTrue(throttler.check(RatingConfig.Operation.CREATE, "b", "hot", 0).allowed());
+
+        ThrottleDecision rejected = throttler.check(RatingConfig.Operation.CREATE, "a", "hot", 0);
+        assertFalse(rejected.allowed());
+        assertEquals(ThrottleDecision.COURSE, rejected.scope());
+        // 3600 por hora: un token por segundo
+        assertEquals(1000, rejected.retryAfterMillis());
+        // El token de usuario consumido antes del rechazo se devuelve
+        assertEquals(4, throttler.getBuckets().get("a").available(0));
+
+        // Otros cursos y otras operaciones no comparten el bucket del curso
+        assertTrue(throttler.check(RatingConfig.Operation.CREATE, "a", "other", 0).allowed());
+        assertTrue(throttler.check(RatingConfig.Operation.DELETE, "a", "hot", 0).allowed());
+    }
+
+    @Test
+    public void testGlobalPolicy() {
+        RatingConfig config = new RatingConfig();
+        config.setBurstSize(10);
+        config.setRequestsPerHour(10);
+        RatingConfig.ThrottlePolicy policy = new RatingConfig.ThrottlePolicy();
+        policy.setUser(limit(5, 5));
+        policy.setGlobal(limit(3, 0));
+        config.getPolicies().put(RatingConfig.Operation.UPDATE, policy);
+        RatingThrottler throttler = new RatingThrottler(config);
+
+        assertTrue(throttler.check(RatingConfig.Operation.UPDATE, "a", null, 0).allowed());
+        assertTrue(throttler.check(RatingConfig.Operation.UPDATE, "b", null, 0).allowed());
+        assertTrue(throttler.check(RatingConfig.Operation.UPDATE, "c", null, 0).allowed());
+
+        ThrottleDecision rejected = throttler.check(RatingConfig.Operation.UPDATE, "d", null, 0);
+        assertEquals(ThrottleDecision.GLOBAL, rejected.scope());
+        // Sin recarga continua solo queda esperar a la recarga completa de la hora
+        assertEquals(TimeUnit.HOURS.toMillis(1), rejected.retryAfterMillis());
+    }
+
+    @Test
+    public void testRemainingIsTheLowestLevelWithoutConsumingTokens() {
+        RatingConfig config = new RatingConfig();
+        config.setBurstSize(5);
+        config.setRequestsPerHour(5);
+        RatingConfig.ThrottlePolicy policy = new RatingConfig.ThrottlePolicy();
+        policy.setCourse(limit(3, 0));
+        config.getPolicies().put(RatingConfig.Operation.CREATE, policy);
+        RatingThrottler throttler = new RatingThrottler(config);
+
+        // Sin buckets todavía: el burst del nivel más estricto
+        assertEquals(3, throttler.remaining(RatingConfig.Operation.CREATE, "a", "course1", 0));
+        assertEquals(0, throttler.bucketCount());
+
+        assertTrue(throttler.check(RatingConfig.Operation.CREATE, "a", "course1", 0).allowed());
+        assertTrue(throttler.check(RatingConfig.Operation.CREATE, "b", "course1", 0).allowed());
+        assertEquals(1, throttler.remaining(RatingConfig.Operation.CREATE, "a", "course1", 0));
+        assertEquals(1, throttler.remaining(RatingConfig.Operation.CREATE, "a", "course1", 0));
+        // Otro curso aún sin bucket cuenta con su burst completo; el del usuario ya va por 4
+        assertEquals(3, throttler.remaining(RatingConfig.Operation.CREATE, "a", "course2", 0));
+        assertEquals(4, throttler.remaining(RatingConfig.Operation.DELETE, "a", "course1", 0));
+
+        assertTrue(throttler.check(RatingConfig.Operation.CREATE, "c", "course1", 0).allowed());
+        assertFalse(throttler.check(RatingConfig.Operation.CREATE, "a", "course1", 0).allowed());
+        assertEquals(0, throttler.remaining(RatingConfig.Operation.CREATE, "a", "course1", 0));
+    }
+
+    private RatingConfig.Limit limit(int burstSize, int requestsPerHour) {
+        RatingConfig.Limit limit = new RatingConfig.Limit();
+        limit.setBurstSize(burstSize);
+        limit.setRequestsPerHour(requestsPerHour);
+        return limit;
+    }
+}
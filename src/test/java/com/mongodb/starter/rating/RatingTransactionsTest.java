@@ -0,0 +1,97 @@
+package com.mongodb.starter.rating;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.mongodb.UncategorizedMongoDbException;
+import org.springframework.transaction.support.TransactionOperations;
+
+import com.mongodb.MongoException;
+import com.mongodb.starter.configuration.MongoTransactionConfig;
+
+class RatingTransactionsTest {
+
+    private final RatingTransactions transactions = new RatingTransactions(TransactionOperations.withoutTransaction(), 3);
+
+    @Test
+    void shouldRetryWholeTransactionOnTransientError() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = transactions.execute(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw writeConflict();
+            }
+            return "committed";
+        });
+
+        assertEquals("committed", result);
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void shouldGiveUpAfterMaxAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        // Agotados los intentos el conflicto se responde como 503, no como error interno
+        RatingService.ConcurrentWriteException error = assertThrows(RatingService.ConcurrentWriteException.class,
+            () -> transactions.execute(() -> {
+                attempts.incrementAndGet();
+                throw writeConflict();
+            }));
+        assertTrue(RatingTransactions.isTransient(error.getCause()));
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void shouldNotRetryOtherErrors() {
+        AtomicInteger attempts = new AtomicInteger();
+        DataIntegrityViolationException duplicate = new DataIntegrityViolationException("E11000");
+
+        RuntimeException error = assertThrows(RuntimeException.class, () -> transactions.execute(() -> {
+            attempts.incrementAndGet();
+            throw duplicate;
+        }));
+        assertSame(duplicate, error);
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void shouldFindTransientLabelInTranslatedException() {
+        assertTrue(RatingTransactions.isTransient(writeConflict()));
+        assertFalse(RatingTransactions.isTransient(new UncategorizedMongoDbException("boom", new MongoException(2, "boom"))));
+    }
+
+    @Test
+    void shouldBackOffExponentiallyWithJitter() {
+        for (int i = 0; i < 100; i++) {
+            long first = RatingTransactions.backoffMs(20, 1);
+            long third = RatingTransactions.backoffMs(20, 3);
+            assertTrue(first >= 10 && first <= 20, "first retry waits " + first);
+            assertTrue(third >= 40 && third <= 80, "third retry waits " + third);
+        }
+        assertEquals(0, RatingTransactions.backoffMs(0, 3));
+    }
+
+    @Test
+    void shouldWriteWithoutTransactionOnStandaloneMongo() {
+        assertTrue(MongoTransactionConfig.supportsTransactions(new Document("isWritablePrimary", true).append("setName", "rs0")));
+        assertTrue(MongoTransactionConfig.supportsTransactions(new Document("msg", "isdbgrid")));
+        assertFalse(MongoTransactionConfig.supportsTransactions(new Document("isWritablePrimary", true)));
+    }
+
+    // Así llega un WriteConflict dentro de una transacción, ya traducido por Spring
+    private static RuntimeException writeConflict() {
+        MongoException conflict = new MongoException(112, "WriteConflict");
+        conflict.addLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL);
+        return new UncategorizedMongoDbException("WriteConflict", conflict);
+    }
+
+}
@@ -146,4 +146,49 @@ public class RatingValidatorTest {
 
         assertTrue(errors.hasFieldErrors("courseId"), "Expected validation error for empty courseId.");
     }
+
+    @Test
+    public void validateRequest_shouldIgnoreMissingUsername() {
+        Rating rating = new Rating();
+        rating.setDescription("Valid description.");
+        rating.setRating(4);
+        rating.setUserId("validUserId");
+        rating.setCourseId("validCourseId");
+
+        Errors errors = validator.validateRequest(rating);
+
+        assertFalse(errors.hasErrors(), "Username is resolved from the student service after request validation.");
+    }
+
+    @Test
+    public void validate_shouldFailForNullDate() {
+        Rating rating = new Rating();
+        rating.setDescription("Valid description.");
+        rating.setRating(4);
+        rating.setUserId("validUserId");
+        rating.setUsername("validUsername");
+        rating.setCourseId("validCourseId");
+        rating.setDate(null);
+
+        Errors errors = new BeanPropertyBindingResult(rating, "rating");
+        validator.validate(rating, errors);
+
+        assertTrue(errors.hasFieldErrors("date"), "Expected validation error for null date.");
+    }
+
+    @Test
+    public void validate_shouldFailForNonObjectId() {
+        Rating rating = new Rating();
+        rating.setDescription("Valid description.");
+        rating.setRating(4);
+        rating.setUserId("validUserId");
+        rating.setUsername("validUsername");
+        rating.setCourseId("validCourseId");
+        rating.setId("legacy-42");
+
+        Errors errors = new BeanPropertyBindingResult(rating, "rating");
+        validator.validate(rating, errors);
+
+        assertTrue(errors.hasFieldErrors("id"), "Expected validation error for an id that is not an ObjectId.");
+    }
 }
@@ -0,0 +1,201 @@
+package com.mongodb.starter.rating;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.mongodb.starter.student.ReactiveStudentProfileService;
+import com.mongodb.starter.student.UserService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveRatingControllerTest {
+
+    private static final String TOKEN = "Bearer validToken";
+    private static final String BASE = "/api/v1/course/course1/ratings/";
+
+    @Mock
+    private ReactiveRatingService ratingService;
+
+    @Mock
+    private ReactiveStudentProfileService studentProfileService;
+
+    @Mock
+    private UserService userService;
+
+    private final RatingConfig ratingConfig = new RatingConfig();
+
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        ratingConfig.setEnabled(true);
+        client = WebTestClient.bindToController(new ReactiveRatingController(ratingService, studentProfileService,
+                ratingConfig, new RatingValidator(), userService))
+                .controllerAdvice(new RatingExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void shouldCreateRatingWithStudentName() {
+        when(userService.extractUserId(TOKEN)).thenReturn("user1");
+        when(studentProfileService.findStudentName("user1", TOKEN)).thenReturn(Mono.just("Ana"));
+        when(ratingService.saveRating(any(Rating.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(ratingService.remainingRequests(RatingConfig.Operation.CREATE, "user1", "course1")).thenReturn(7L);
+
+        client.post().uri(BASE).header("Authorization", TOKEN).contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new RatingBody("Great course", 5))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().valueEquals(RatingController.RATE_LIMIT_REMAINING_HEADER, "7")
+                .expectBody()
+                .jsonPath("$.username").isEqualTo("Ana")
+                .jsonPath("$.userId").isEqualTo("user1")
+                .jsonPath("$.courseId").isEqualTo("course1");
+    }
+
+    @Test
+    void shouldReturnNotFoundWhenStudentHasNoProfile() {
+        when(userService.extractUserId(TOKEN)).thenReturn("user1");
+        when(studentProfileService.findStudentName("user1", TOKEN)).thenReturn(Mono.empty());
+
+        client.post().uri(BASE).header("Authorization", TOKEN).contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new RatingBody("Great course", 5))
+                .exchange()
+                .expectStatus().isNotFound();
+
+        verify(ratingService, never()).saveRating(any(Rating.class));
+    }
+
+    @Test
+    void shouldGiveUpOnStudentLookupAfterCreateBudget() {
+        ratingConfig.setCreateBudgetMs(50);
+        when(userService.extractUserId(TOKEN)).thenReturn("user1");
+        when(studentProfileService.findStudentName("user1", TOKEN)).thenReturn(Mono.never());
+
+        client.post().uri(BASE).header("Authorization", TOKEN).contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new RatingBody("Great course", 5))
+                .exchange()
+                .expectStatus().is5xxServerError();
+
+        verify(ratingService, never()).saveRating(any(Rating.class));
+    }
+
+    @Test
+    void shouldReturnUnauthorizedWhenUpdatingAnotherUsersRating() {
+        when(userService.extractUserId(TOKEN)).thenReturn("user1");
+        when(ratingService.updateRating(any(Rating.class), eq("r1"), eq("user1"), eq("course1")))
+                .thenReturn(Mono.error(new RatingService.RatingOwnershipException("not yours")));
+
+        client.put().uri(BASE + "r1").header("Authorization", TOKEN).contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new RatingBody("Changed", 3))
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+
+    @Test
+    void shouldReturnTooManyRequestsWithRetryAfterWhenThrottled() {
+        when(userService.extractUserId(TOKEN)).thenReturn("user1");
+        when(ratingService.deleteRating("r1", "user1", "course1")).thenReturn(Mono.error(RatingService.ThrottlingException.of(
+                ThrottleDecision.rejected(ThrottleDecision.COURSE, 1500), "user1", "course1")));
+
+        client.delete().uri(BASE + "r1").header("Authorization", TOKEN)
+                .exchange()
+                .expectStatus().isEqualTo(429)
+                .expectHeader().valueEquals("Retry-After", "2")
+                .expectHeader().valueEquals(RatingController.RATE_LIMIT_REMAINING_HEADER, "0")
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Rate limit exceeded for course: course1");
+    }
+
+    @Test
+    void shouldExposeNextCursorHeader() {
+        Rating rating = new Rating();
+        rating.setId("r1");
+        when(ratingService.findCourseAggregate("course1")).thenReturn(Mono.just(new CourseRatingAggregate("course1")));
+        when(ratingService.findRatingsPageByCourse("course1", 1, null))
+                .thenReturn(Mono.just(new RatingPage(List.of(rating), "cursor")));
+
+        client.get().uri(BASE + "?limit=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(RatingController.NEXT_CURSOR_HEADER, "cursor")
+                .expectBody().jsonPath("$[0].id").isEqualTo("r1");
+    }
+
+    @Test
+    void shouldAnswerBadRequestForAnUndecodableCursor() {
+        when(ratingService.findCourseAggregate("course1")).thenReturn(Mono.just(new CourseRatingAggregate("course1")));
+        when(ratingService.findRatingsPageByCourse("course1", null, "not-a-cursor"))
+                .thenReturn(Mono.fromCallable(() -> RatingCursor.decode("not-a-cursor")).map(cursor -> new RatingPage(List.of(), null)));
+
+        client.get().uri(BASE + "?next=not-a-cursor")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void shouldAnswerNotModifiedWithoutReadingRatingsWhenETagMatches() {
+        CourseRatingAggregate course = new CourseRatingAggregate("course1");
+        course.setVersion(7);
+        course.setLastModified(Instant.parse("2024-12-01T10:00:00Z"));
+        when(ratingService.findCourseAggregate("course1")).thenReturn(Mono.just(course));
+
+        client.get().uri(BASE + "?limit=10").header("If-None-Match", "\"7-10\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals("ETag", "\"7-10\"")
+                .expectHeader().doesNotExist("Last-Modified");
+
+        verify(ratingService, never()).findRatingsPageByCourse(any(), any(), any());
+    }
+
+    @Test
+    void shouldIgnoreIfModifiedSinceWithoutETag() {
+        CourseRatingAggregate course = new CourseRatingAggregate("course1");
+        course.setVersion(7);
+        course.setLastModified(Instant.parse("2024-12-01T10:00:00Z"));
+        when(ratingService.findCourseAggregate("course1")).thenReturn(Mono.just(course));
+        when(ratingService.findRatingsPageByCourse("course1", 10, null)).thenReturn(Mono.just(new RatingPage(List.of(), null)));
+
+        client.get().uri(BASE + "?limit=10").header("If-Modified-Since", "Mon, 02 Dec 2024 10:00:00 GMT")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"7-10\"")
+                .expectHeader().doesNotExist("Last-Modified");
+    }
+
+    @Test
+    void shouldStreamExportAsNdjson() {
+        Rating first = new Rating();
+        first.setId("r1");
+        Rating second = new Rating();
+        second.setId("r2");
+        when(ratingService.streamAllRatingsByCourse("course1")).thenReturn(Flux.just(first, second));
+
+        client.get().uri(BASE + "export").accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(Rating.class).hasSize(2);
+    }
+
+    private record RatingBody(String description, Integer rating) {
+    }
+
+}
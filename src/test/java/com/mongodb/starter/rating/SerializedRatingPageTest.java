@@ -0,0 +1,65 @@
+package com.mongodb.starter.rating;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+class SerializedRatingPageTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .registerModule(new JavaTimeModule())
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Test
+    void shouldKeepJsonAndGzipOfLargePages() throws Exception {
+        List<Rating> ratings = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Rating rating = new Rating();
+            rating.setId("r" + i);
+            rating.setDescription("A long enough description to make the page worth compressing");
+            rating.setRating(4);
+            ratings.add(rating);
+        }
+
+        SerializedRatingPage page = SerializedRatingPage.encode(3, new RatingPage(ratings, "cursor"), objectMapper);
+
+        assertArrayEquals(objectMapper.writeValueAsBytes(ratings), page.getJson());
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(page.getGzip()))) {
+            assertArrayEquals(page.getJson(), gzip.readAllBytes());
+        }
+        assertTrue(page.getGzip().length < page.getJson().length);
+        assertEquals(3, page.getVersion());
+        assertEquals("cursor", page.getNext());
+    }
+
+    @Test
+    void shouldNotCompressSmallPages() {
+        SerializedRatingPage page = SerializedRatingPage.encode(1, new RatingPage(List.of(), null), objectMapper);
+
+        assertEquals("[]", new String(page.getJson()));
+        assertNull(page.getGzip());
+    }
+
+    @Test
+    void shouldNegotiateGzipFromAcceptEncoding() {
+        assertTrue(SerializedRatingPage.acceptsGzip("gzip, deflate, br"));
+        assertTrue(SerializedRatingPage.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+        assertFalse(SerializedRatingPage.acceptsGzip("gzip;q=0"));
+        assertFalse(SerializedRatingPage.acceptsGzip("identity"));
+        assertFalse(SerializedRatingPage.acceptsGzip(null));
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.mongodb.starter.rating;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class TokenBucketTest {
+
+    private static final long START = 1_700_000_000_000L;
+
+    @Test
+    void shouldRefillOneTokenPerIntervalWithoutLosingFractions() {
+        // 100 por hora: un token cada 36 s
+        TokenBucket bucket = new TokenBucket(1, 100, START);
+        assertTrue(bucket.tryConsume(START));
+        assertFalse(bucket.tryConsume(START));
+
+        // Muchas llamadas en pasos pequeños acumulan la recarga igual que una sola llamada
+        long now = START;
+        for (int i = 0; i < 35; i++) {
+            now += 1000;
+            assertFalse(bucket.tryConsume(now));
+        }
+        assertTrue(bucket.tryConsume(START + 36_000));
+        assertFalse(bucket.tryConsume(START + 36_000));
+    }
+
+    @Test
+    void shouldCapTokensAtCapacity() {
+        TokenBucket bucket = new TokenBucket(5, 10, START);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(bucket.tryConsume(START));
+        }
+        bucket.tryConsume(START + TimeUnit.HOURS.toMillis(5));
+
+        assertEquals(9.0, bucket.getTokens(), 1e-6);
+        assertEquals(START + TimeUnit.HOURS.toMillis(5), bucket.getLastRefillTimestamp());
+    }
+
+    @Test
+    void shouldIgnoreTimestampsGoingBackwards() {
+        TokenBucket bucket = new TokenBucket(1, 100, START);
+        assertTrue(bucket.tryConsume(START));
+        assertTrue(bucket.tryConsume(START + 60_000));
+        assertFalse(bucket.tryConsume(START));
+        assertEquals(START + 36_000, bucket.getLastRefillTimestamp(), 1);
+    }
+
+    @Test
+    void shouldNeverGrantMoreThanAvailableUnderContention() throws Exception {
+        int threads = 8;
+        TokenBucket bucket = new TokenBucket(1000, 1000, START);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int granted = 0;
+                    for (int i = 0; i < 1000; i++) {
+                        if (bucket.tryConsume(START)) {
+                            granted++;
+                        }
+                    }
+                    return granted;
+                }));
+            }
+            start.countDown();
+            int granted = 0;
+            for (Future<Integer> result : results) {
+                granted += result.get(10, TimeUnit.SECONDS);
+            }
+            assertEquals(1000, granted);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.mongodb.starter.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.crypto.SecretKey;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.mongodb.starter.student.UserService;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+class JwtAuthenticationFilterTest {
+
+    private static final byte[] SECRET = "0123456789abcdef0123456789abcdef".getBytes();
+    private static final SecretKey KEY = Keys.hmacShaKeyFor(SECRET);
+
+    private final AtomicReference<Authentication> seen = new AtomicReference<>();
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        JwtProperties properties = new JwtProperties();
+        properties.setEnabled(true);
+        properties.setSecret(Base64.getEncoder().encodeToString(SECRET));
+        properties.setIssuer("auth-service");
+        filter = new JwtAuthenticationFilter(new JwtVerifier(properties));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void shouldPutSubjectAndRoleInSecurityContext() throws Exception {
+        String token = Jwts.builder().subject("user-1").issuer("auth-service").claim("role", "student")
+                .expiration(Date.from(Instant.now().plusSeconds(60))).signWith(KEY).compact();
+
+        MockHttpServletResponse response = doFilter("Bearer " + token);
+
+        assertEquals(200, response.getStatus());
+        JwtAuthentication authentication = (JwtAuthentication) seen.get();
+        assertEquals("user-1", authentication.getUserId());
+        assertEquals("student", authentication.getRole());
+        assertEquals("ROLE_STUDENT", authentication.getAuthorities().iterator().next().getAuthority());
+    }
+
+    @Test
+    void shouldLetControllersReadVerifiedClaimsWithoutParsing() throws Exception {
+        String token = Jwts.builder().subject("user-1").issuer("auth-service").claim("role", "admin").signWith(KEY).compact();
+        UserService userService = new UserService(100, Duration.ofMinutes(1), Clock.systemUTC());
+        AtomicReference<String> userId = new AtomicReference<>();
+        AtomicReference<String> role = new AtomicReference<>();
+
+        MockHttpServletRequest request = request("Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                userId.set(userService.extractUserId("Bearer " + token));
+                role.set(userService.getUserRoleById("user-1", "Bearer " + token));
+            }
+        }));
+
+        assertEquals("user-1", userId.get());
+        assertEquals("admin", role.get());
+    }
+
+    @Test
+    void shouldRejectTokenWithWrongSignature() throws Exception {
+        SecretKey otherKey = Keys.hmacShaKeyFor("fedcba9876543210fedcba9876543210".getBytes());
+        String token = Jwts.builder().subject("user-1").issuer("auth-service").signWith(otherKey).compact();
+
+        MockHttpServletResponse response = doFilter("Bearer " + token);
+
+        assertEquals(401, response.getStatus());
+        assertNull(seen.get());
+    }
+
+    @Test
+    void shouldRejectExpiredTokenAndUnexpectedIssuer() throws Exception {
+        String expired = Jwts.builder().subject("user-1").issuer("auth-service")
+                .expiration(Date.from(Instant.now().minusSeconds(300))).signWith(KEY).compact();
+        String foreign = Jwts.builder().subject("user-1").issuer("someone-else").signWith(KEY).compact();
+
+        assertEquals(401, doFilter("Bearer " + expired).getStatus());
+        assertEquals(401, doFilter("Bearer " + foreign).getStatus());
+        assertEquals(401, doFilter("Bearer not-a-jwt").getStatus());
+    }
+
+    @Test
+    void shouldLeaveRequestsWithoutTokenAnonymous() throws Exception {
+        MockHttpServletResponse response = doFilter(null);
+
+        assertEquals(200, response.getStatus());
+        assertNull(seen.get());
+    }
+
+    private MockHttpServletResponse doFilter(String authorization) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(authorization), response, new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                seen.set(SecurityContextHolder.getContext().getAuthentication());
+            }
+        }));
+        return response;
+    }
+
+    private MockHttpServletRequest request(String authorization) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/course/c1/ratings/");
+        if (authorization != null) {
+            request.addHeader("Authorization", authorization);
+        }
+        return request;
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.mongodb.starter.student;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import reactor.core.publisher.Mono;
+
+class ReactiveStudentProfileServiceTest {
+
+    // Nombre que devuelve el servicio de estudiantes para cada token; sin entrada responde 401
+    private final Map<String, String> namesByToken = new ConcurrentHashMap<>();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private ReactiveStudentProfileService studentProfileService;
+
+    @BeforeEach
+    void setUp() {
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    calls.incrementAndGet();
+                    String name = namesByToken.get(request.headers().getFirst(HttpHeaders.AUTHORIZATION));
+                    if (name == null) {
+                        return Mono.just(ClientResponse.create(HttpStatus.UNAUTHORIZED).build());
+                    }
+                    return Mono.just(ClientResponse.create(HttpStatus.OK)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body("{\"contactInformation\":{\"name\":\"" + name + "\"}}")
+                            .build());
+                })
+                .build();
+        studentProfileService = new ReactiveStudentProfileService(webClient, new StudentProfileCacheConfig());
+        ReflectionTestUtils.setField(studentProfileService, "studentServiceUrl", "http://students/me");
+    }
+
+    @Test
+    void shouldServeCachedNameForTheSameToken() {
+        namesByToken.put("Bearer victim", "Victim");
+
+        assertEquals("Victim", studentProfileService.findStudentName("victim-id", "Bearer victim").block());
+        assertEquals("Victim", studentProfileService.findStudentName("victim-id", "Bearer victim").block());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void shouldNotServeCachedNameToForgedTokenWithTheSameSubject() {
+        namesByToken.put("Bearer victim", "Victim");
+        studentProfileService.findStudentName("victim-id", "Bearer victim").block();
+
+        Mono<String> forged = studentProfileService.findStudentName("victim-id", "Bearer forged")
+                .onErrorResume(e -> Mono.empty());
+
+        assertNull(forged.block());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void shouldInvalidateEveryTokenOfTheUser() {
+        namesByToken.put("Bearer a", "Student");
+        namesByToken.put("Bearer b", "Student");
+        studentProfileService.findStudentName("student-id", "Bearer a").block();
+        studentProfileService.findStudentName("student-id", "Bearer b").block();
+
+        studentProfileService.invalidate("student-id");
+        studentProfileService.findStudentName("student-id", "Bearer a").block();
+
+        assertEquals(3, calls.get());
+    }
+
+}
@@ -0,0 +1,172 @@
+package com.mongodb.starter.student;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+@ExtendWith(MockitoExtension.class)
+class StudentProfileServiceTest {
+
+    private static final String STUDENT_URL = "http://students/me";
+    private static final String TOKEN = "Bearer token";
+
+    @Mock
+    private RestTemplate restTemplate;
+
+    @Mock
+    private Clock clock;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    private StudentProfileService studentProfileService;
+
+    @BeforeEach
+    void setUp() {
+        StudentProfileCacheConfig config = new StudentProfileCacheConfig();
+        config.setTtl(Duration.ofMinutes(10));
+        config.setMaxStaleness(Duration.ofHours(1));
+        config.setSlowCallThreshold(Duration.ofMillis(50));
+        when(clock.millis()).thenAnswer(invocation -> now.get());
+        studentProfileService = new StudentProfileService(restTemplate, config, clock, false);
+        ReflectionTestUtils.setField(studentProfileService, "studentServiceUrl", STUDENT_URL);
+    }
+
+    @AfterEach
+    void tearDown() {
+        studentProfileService.shutdown();
+    }
+
+    @Test
+    void shouldServeNameFromCacheWithinTtl() {
+        whenStudentService().thenReturn(ResponseEntity.ok(student("Ana")));
+
+        assertEquals("Ana", studentProfileService.findStudentName("user1", TOKEN));
+        now.addAndGet(Duration.ofMinutes(5).toMillis());
+        assertEquals("Ana", studentProfileService.findStudentName("user1", TOKEN));
+
+        verifyStudentServiceCalled(1);
+    }
+
+    @Test
+    void shouldNotServeCachedNameToAnotherTokenWithTheSameUserId() {
+        whenStudentService()
+            .thenReturn(ResponseEntity.ok(student("Ana")))
+            .thenReturn(ResponseEntity.ok(student("Mallory")));
+
+        assertEquals("Ana", studentProfileService.findStudentName("user1", TOKEN));
+        assertEquals("Mallory", studentProfileService.findStudentName("user1", "Bearer forged"));
+
+        verifyStudentServiceCalled(2);
+    }
+
+    @Test
+    void shouldShareOneOutboundCallBetweenConcurrentRequests() throws Exception {
+        CountDownLatch called = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        whenStudentService().thenAnswer(invocation -> {
+            called.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return ResponseEntity.ok(student("Ana"));
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> studentProfileService.findStudentName("user1", TOKEN));
+            assertTrue(called.await(5, TimeUnit.SECONDS));
+            Future<String> second = executor.submit(() -> studentProfileService.findStudentName("user1", TOKEN));
+            Thread.sleep(50);
+            release.countDown();
+
+            assertEquals("Ana", first.get(5, TimeUnit.SECONDS));
+            assertEquals("Ana", second.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        verifyStudentServiceCalled(1);
+    }
+
+    @Test
+    void shouldServeStaleNameWhenRefreshIsSlow() {
+        CountDownLatch release = new CountDownLatch(1);
+        whenStudentService()
+            .thenReturn(ResponseEntity.ok(student("Ana")))
+            .thenAnswer(invocation -> {
+                release.await(5, TimeUnit.SECONDS);
+                return ResponseEntity.ok(student("Ana Maria"));
+            });
+
+        studentProfileService.findStudentName("user1", TOKEN);
+        now.addAndGet(Duration.ofMinutes(15).toMillis());
+
+        assertEquals("Ana", studentProfileService.findStudentName("user1", TOKEN));
+        release.countDown();
+    }
+
+    @Test
+    void shouldServeStaleNameWhenRefreshFails() {
+        whenStudentService()
+            .thenReturn(ResponseEntity.ok(student("Ana")))
+            .thenThrow(new ResourceAccessException("Service Unavailable"));
+
+        studentProfileService.findStudentName("user1", TOKEN);
+        now.addAndGet(Duration.ofMinutes(15).toMillis());
+
+        assertEquals("Ana", studentProfileService.findStudentName("user1", TOKEN));
+    }
+
+    @Test
+    void shouldPropagateFailureWhenNoUsableNameIsCached() {
+        whenStudentService()
+            .thenReturn(ResponseEntity.ok(student("Ana")))
+            .thenThrow(new ResourceAccessException("Service Unavailable"));
+
+        studentProfileService.findStudentName("user1", TOKEN);
+        now.addAndGet(Duration.ofHours(2).toMillis());
+
+        assertThrows(ResourceAccessException.class, () -> studentProfileService.findStudentName("user1", TOKEN));
+    }
+
+    private org.mockito.stubbing.OngoingStubbing<ResponseEntity<StudentDto>> whenStudentService() {
+        return when(restTemplate.exchange(eq(STUDENT_URL), eq(HttpMethod.GET), any(HttpEntity.class), eq(StudentDto.class)));
+    }
+
+    private void verifyStudentServiceCalled(int times) {
+        verify(restTemplate, times(times)).exchange(eq(STUDENT_URL), eq(HttpMethod.GET), any(HttpEntity.class), eq(StudentDto.class));
+    }
+
+    private StudentDto student(String name) {
+        ContactInformation contactInformation = new ContactInformation();
+        contactInformation.setName(name);
+        StudentDto student = new StudentDto();
+        student.setContactInformation(contactInformation);
+        return student;
+    }
+
+}
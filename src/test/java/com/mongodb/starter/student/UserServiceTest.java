@@ -0,0 +1,179 @@
+package com.mongodb.starter.student;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+class UserServiceTest {
+
+    private static final Instant NOW = Instant.parse("2025-01-01T00:00:00Z");
+
+    private final UserService userService = new UserService(100, Duration.ofMinutes(10), Clock.fixed(NOW, ZoneOffset.UTC));
+
+    @Test
+    void shouldExtractSubjectFromBase64UrlPayload() {
+        String token = token("{\"iss\":\"auth\",\"roles\":[\"student\"],\"profile\":{\"sub\":\"nested\"},\"sub\":\"user-1\"}", "sig1");
+
+        assertEquals("user-1", userService.extractUserId(token));
+    }
+
+    @Test
+    void shouldExtractNumericSubject() {
+        assertEquals("42", userService.extractUserId(token("{\"sub\":42}", "sig2")));
+    }
+
+    @Test
+    void shouldServeCachedSubjectForSameSignatureUntilExp() {
+        long exp = NOW.plusSeconds(60).getEpochSecond();
+        assertEquals("user-1", userService.extractUserId(token("{\"sub\":\"user-1\",\"exp\":" + exp + "}", "same")));
+
+        // Mismo token (misma firma): no se vuelve a parsear el payload
+        assertEquals("user-1", userService.extractUserId(token("{\"sub\":\"other\",\"exp\":" + exp + "}", "same")));
+    }
+
+    @Test
+    void shouldNotCacheExpiredTokens() {
+        long exp = NOW.minusSeconds(60).getEpochSecond();
+        assertEquals("user-1", userService.extractUserId(token("{\"sub\":\"user-1\",\"exp\":" + exp + "}", "old")));
+
+        assertEquals("user-2", userService.extractUserId(token("{\"sub\":\"user-2\",\"exp\":" + exp + "}", "old")));
+    }
+
+    @Test
+    void shouldRejectMalformedTokens() {
+        assertThrows(RuntimeException.class, () -> userService.extractUserId("validToken"));
+        assertThrows(RuntimeException.class, () -> userService.extractUserId("Bearer a.b"));
+        assertThrows(RuntimeException.class, () -> userService.extractUserId("Bearer a.b.c.d"));
+        assertThrows(RuntimeException.class, () -> userService.extractUserId(token("{\"name\":\"x\"}", "nosub")));
+        assertThrows(RuntimeException.class, () -> userService.extractUserId(token("[1,2]", "array")));
+    }
+
+    @Test
+    void shouldShareOneRoleLookupBetweenConcurrentRequests() throws Exception {
+        Sinks.One<ClientResponse> response = Sinks.one();
+        AtomicInteger calls = new AtomicInteger();
+        UserService service = roleService(request -> {
+            calls.incrementAndGet();
+            return response.asMono();
+        }, new AtomicLong());
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> service.getUserRoleById("user-1", "Bearer t"));
+            Future<String> second = executor.submit(() -> service.getUserRoleById("user-1", "Bearer t"));
+            Thread.sleep(50);
+            response.tryEmitValue(json(HttpStatus.OK, "{\"role\":\"admin\"}"));
+
+            assertEquals("admin", first.get(5, TimeUnit.SECONDS));
+            assertEquals("admin", second.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals("admin", service.getUserRoleById("user-1", "Bearer t"));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void shouldNotShareCachedRoleWithAnotherTokenForTheSameUser() {
+        AtomicInteger calls = new AtomicInteger();
+        UserService service = roleService(request -> Mono.just(json(HttpStatus.OK,
+                calls.incrementAndGet() == 1 ? "{\"role\":\"admin\"}" : "{\"role\":\"student\"}")), new AtomicLong());
+
+        assertEquals("admin", service.getUserRoleById("user-1", "Bearer admin-token"));
+        // Un token distinto con el mismo sub vuelve a preguntar al servicio de autenticación
+        assertEquals("student", service.getUserRoleById("user-1", "Bearer forged-token"));
+        assertEquals("admin", service.getUserRoleById("user-1", "Bearer admin-token"));
+        assertEquals(2, calls.get());
+
+        service.invalidateRole("user-1");
+        service.getUserRoleById("user-1", "Bearer admin-token");
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void shouldCacheMissingRoleOnlyForNegativeTtl() {
+        AtomicInteger calls = new AtomicInteger();
+        AtomicLong now = new AtomicLong();
+        UserService service = roleService(request -> {
+            calls.incrementAndGet();
+            return Mono.just(json(HttpStatus.NOT_FOUND, "{}"));
+        }, now);
+
+        RuntimeException error = assertThrows(RuntimeException.class, () -> service.getUserRoleById("ghost", "Bearer t"));
+        assertTrue(error.getMessage().contains("Role not found for user ID: ghost"));
+        assertThrows(RuntimeException.class, () -> service.getUserRoleById("ghost", "Bearer t"));
+        assertEquals(1, calls.get());
+
+        now.addAndGet(Duration.ofSeconds(31).toMillis());
+        assertThrows(RuntimeException.class, () -> service.getUserRoleById("ghost", "Bearer t"));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void shouldNotCacheLookupErrors() {
+        AtomicInteger calls = new AtomicInteger();
+        AtomicReference<HttpStatus> status = new AtomicReference<>(HttpStatus.SERVICE_UNAVAILABLE);
+        UserService service = roleService(request -> {
+            calls.incrementAndGet();
+            return Mono.just(json(status.get(), "{\"role\":\"student\"}"));
+        }, new AtomicLong());
+
+        RuntimeException error = assertThrows(RuntimeException.class, () -> service.getUserRoleById("user-1", "Bearer t"));
+        assertTrue(error.getMessage().startsWith("Error retrieving user role: "));
+
+        status.set(HttpStatus.OK);
+        assertEquals("student", service.getUserRoleById("user-1", "Bearer t"));
+        assertEquals(2, calls.get());
+    }
+
+    private static UserService roleService(ExchangeFunction exchange, AtomicLong now) {
+        Clock clock = mock(Clock.class);
+        when(clock.millis()).thenAnswer(invocation -> now.get());
+        UserService service = new UserService(100, Duration.ofMinutes(10), new UserRoleCacheConfig(), clock);
+        ReflectionTestUtils.setField(service, "authWebClient", WebClient.builder().exchangeFunction(exchange).build());
+        ReflectionTestUtils.setField(service, "baseUrl", "http://auth/");
+        return service;
+    }
+
+    private static ClientResponse json(HttpStatus status, String body) {
+        return ClientResponse.create(status)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(body)
+                .build();
+    }
+
+    private static String token(String payload, String signature) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return "Bearer " + encoder.encodeToString("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + "." + signature;
+    }
+
+}